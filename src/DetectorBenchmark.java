@@ -0,0 +1,339 @@
+/**
+ * Benchmarks every drift detector on the same streams of test results, with drift at known points
+ * Streams are generated up front (synthetic error rates, and LED/STAGGER streams scored by a classifier) so every
+ * detector sees exactly the same results, then each detector is run once to score its drift signals and several more
+ * times to time it. Results are written as a CSV table with one row per stream and detector
+ */
+
+import com.sun.management.ThreadMXBean;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import moa.classifiers.Classifier;
+import moa.classifiers.bayes.NaiveBayesMultinomial;
+import moa.classifiers.trees.HoeffdingTree;
+import moa.core.Utils;
+import core.ClassIndexer;
+import core.PredictionMatrix;
+import detectors.ADWIN;
+import detectors.AbstractChangeDetectorNew;
+import detectors.CUSUM;
+import detectors.DDM;
+import detectors.EDDM;
+import detectors.ErrorRateDetector;
+import detectors.FHDDM;
+import detectors.HDDMA;
+import detectors.MDDMA;
+import detectors.MDDME;
+import detectors.MDDMG;
+import detectors.PageHinkley;
+import detectors.PerClassDDM;
+import detectors.PerfSim2;
+import generators.NewLEDGenerator;
+import generators.NewSTAGGERGenerator;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+//Compares the drift detectors on detection delay, false alarms, missed drifts and cost per update
+public class DetectorBenchmark {
+    /*Parameters-----------------------------------------*/
+    private static final String RESULTS_FILE = "results/benchmark.csv";
+
+    //Number of test results in each stream
+    public static int STREAM_SIZE = 48000;
+    //Number of instances to switch concepts (i.e. between drift points)
+    public static int INST_PER_CON = 6000;
+    //Seed for the synthetic streams
+    private static final long SEED = 1;
+
+    //Toggle the LED and STAGGER streams (they need a classifier to be trained on them)
+    public static boolean USE_GENERATOR_STREAMS = true;
+
+    //A drift signal at most this many instances after a drift point detects it, any other signal is a false alarm
+    public static int MAX_DELAY = 2000;
+    //Number of timed runs of each detector (after the untimed scoring run)
+    public static int TIMED_RUNS = 5;
+
+    //Sliding window size of the prediction matrix the detectors read from
+    private static final int PREQUENTIAL_WINDOW_SIZE = 150;
+    //How often PerfSim moves its compare-to matrix (so it can be tested after every instance), it also moves on a drift
+    private static final int PERFSIM_REFERENCE_INTERVAL = 300;
+
+    //Detectors to compare, None only records results in the matrix (the cost every detector shares)
+    private static final String[] DETECTORS = {"None", "DDM", "EDDM", "FHDDM", "MDDM-A", "MDDM-G", "MDDM-E", "ADWIN",
+            "PageHinkley", "CUSUM", "HDDM-A", "PerClassDDM", "PerfSim2"};
+
+    //For the LED stream this is the distribution of classes generated for each concept (as in Experiment4)
+    private static final double[][] LED_CON = {
+            {1,5,5,5,5,5,5,5,5,25},
+            {5,5,5,5,1,5,25,5,5,5},
+            {5,5,25,5,1,5,5,5,5,5}
+    };
+
+    //Thread bean that can count allocated bytes, null if the JVM's doesn't
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean() instanceof ThreadMXBean ?
+            (ThreadMXBean) ManagementFactory.getThreadMXBean() : null;
+    private static volatile int SINK;           //Timed results are written here so the JIT can't drop them
+
+    /*Streams-----------------------------------------*/
+    //Test results with the points where the concept changes
+    private static final class OutcomeStream {
+        final String name;
+        final int numClasses;
+        final int[] actual;
+        final int[] predicted;
+        final int[] driftPoints;
+
+        OutcomeStream(String name, int numClasses){
+            this.name = name;
+            this.numClasses = numClasses;
+            this.actual = new int[STREAM_SIZE];
+            this.predicted = new int[STREAM_SIZE];
+
+            this.driftPoints = new int[(STREAM_SIZE - 1) / INST_PER_CON];
+            for (int i = 0; i < driftPoints.length; i++){
+                driftPoints[i] = (i + 1) * INST_PER_CON;
+            }
+        }
+    }
+
+    //Two classes, the error rate jumps between 10% and 30% at every drift point
+    private static OutcomeStream abruptStream(){
+        OutcomeStream stream = new OutcomeStream("Synthetic-Abrupt", 2);
+        Random random = new Random(SEED);
+
+        for (int i = 0; i < STREAM_SIZE; i++){
+            double errorRate = (i / INST_PER_CON) % 2 == 0 ? 0.1 : 0.3;
+            stream.actual[i] = random.nextInt(2);
+            stream.predicted[i] = random.nextDouble() < errorRate ? 1 - stream.actual[i] : stream.actual[i];
+        }
+        return stream;
+    }
+
+    //Ten classes in the LED proportions, only the 1% class's error rate changes (from 10% to 70%)
+    private static OutcomeStream minorityStream(){
+        OutcomeStream stream = new OutcomeStream("Synthetic-Minority", 10);
+        Random random = new Random(SEED);
+        double[] proportions = LED_CON[0];
+        double total = 0;
+        for (int i = 0; i < proportions.length; i++){
+            total += proportions[i];
+        }
+
+        for (int i = 0; i < STREAM_SIZE; i++){
+            //Draws the actual class from the proportions
+            double draw = random.nextDouble() * total;
+            int actualClass = proportions.length - 1;
+            for (int c = 0; c < proportions.length; c++){
+                draw -= proportions[c];
+                if (draw < 0){
+                    actualClass = c;
+                    break;
+                }
+            }
+
+            double errorRate = (actualClass == 0 && (i / INST_PER_CON) % 2 == 1) ? 0.7 : 0.1;
+            stream.actual[i] = actualClass;
+            stream.predicted[i] = random.nextDouble() < errorRate ?
+                    (actualClass + 1 + random.nextInt(9)) % 10 : actualClass;
+        }
+        return stream;
+    }
+
+    //Tests then trains a classifier on an LED stream whose class proportions change at every drift point
+    private static OutcomeStream ledStream(){
+        NewLEDGenerator generator = new NewLEDGenerator(17, 10);
+        generator.prepareForUse();
+        InstancesHeader header = generator.getHeader();
+        Classifier clf = new NaiveBayesMultinomial();
+        clf.setModelContext(header);
+        clf.prepareForUse();
+
+        OutcomeStream stream = new OutcomeStream("LED", header.numClasses());
+        ClassIndexer classes = ClassIndexer.identity(header.numClasses());
+        for (int i = 0; i < STREAM_SIZE; i++){
+            if (i % INST_PER_CON == 0){
+                generator.setClass_proportions(LED_CON[(i / INST_PER_CON) % LED_CON.length]);
+            }
+            Instance instance = generator.nextInstance().getData();
+            stream.actual[i] = classes.indexOf(instance.classValue());
+            stream.predicted[i] = Utils.maxIndex(clf.getVotesForInstance(instance));
+            clf.trainOnInstance(instance);
+        }
+        return stream;
+    }
+
+    //Tests then trains a classifier on a STAGGER stream whose target concept changes at every drift point
+    private static OutcomeStream staggerStream(){
+        NewSTAGGERGenerator generator = new NewSTAGGERGenerator();
+        generator.prepareForUse();
+        InstancesHeader header = generator.getHeader();
+        Classifier clf = new HoeffdingTree();
+        clf.setModelContext(header);
+        clf.prepareForUse();
+
+        OutcomeStream stream = new OutcomeStream("STAGGER", header.numClasses());
+        ClassIndexer classes = ClassIndexer.identity(header.numClasses());
+        for (int i = 0; i < STREAM_SIZE; i++){
+            if (i % INST_PER_CON == 0){
+                generator.setConcept((i / INST_PER_CON) % 3 + 1);
+            }
+            Instance instance = generator.nextInstance().getData();
+            stream.actual[i] = classes.indexOf(instance.classValue());
+            stream.predicted[i] = Utils.maxIndex(clf.getVotesForInstance(instance));
+            clf.trainOnInstance(instance);
+        }
+        return stream;
+    }
+
+    /*Detectors-----------------------------------------*/
+    //Never signals, used to measure the cost of recording results in the matrix
+    private static final class NoDetector extends ErrorRateDetector {
+        NoDetector(PredictionMatrix predictionMatrix){
+            super(predictionMatrix, 0);
+        }
+
+        public int update(boolean correct){
+            return 1;
+        }
+    }
+
+    private static AbstractChangeDetectorNew createDetector(String name, PredictionMatrix predictionMatrix){
+        switch (name){
+            case "None":        return new NoDetector(predictionMatrix);
+            case "DDM":         return new DDM(predictionMatrix);
+            case "EDDM":        return new EDDM(predictionMatrix);
+            case "FHDDM":       return new FHDDM(predictionMatrix);
+            case "MDDM-A":      return new MDDMA(predictionMatrix);
+            case "MDDM-G":      return new MDDMG(predictionMatrix);
+            case "MDDM-E":      return new MDDME(predictionMatrix);
+            case "ADWIN":       return new ADWIN(predictionMatrix);
+            case "PageHinkley": return new PageHinkley(predictionMatrix);
+            case "CUSUM":       return new CUSUM(predictionMatrix);
+            case "HDDM-A":      return new HDDMA(predictionMatrix);
+            case "PerClassDDM": return new PerClassDDM(predictionMatrix);
+            case "PerfSim2":    return new PerfSim2(predictionMatrix, 0.98, PERFSIM_REFERENCE_INTERVAL);
+            default:
+                throw new IllegalArgumentException("Unknown detector " + name);
+        }
+    }
+
+    /*Program-----------------------------------------*/
+    //Runs a detector over a stream, testing after every result
+    //Returns whether drift was signalled after each result
+    private static boolean[] runDetector(String name, OutcomeStream stream){
+        PredictionMatrix predictionMatrix = new PredictionMatrix(stream.numClasses, PREQUENTIAL_WINDOW_SIZE);
+        AbstractChangeDetectorNew detector = createDetector(name, predictionMatrix);
+        boolean[] signals = new boolean[STREAM_SIZE];
+
+        for (int i = 0; i < STREAM_SIZE; i++){
+            predictionMatrix.record(stream.actual[i], stream.predicted[i]);
+            signals[i] = detector.testDrift() == 0;
+        }
+        return signals;
+    }
+
+    //Times a detector over a stream
+    //Returns {nanoseconds, bytes allocated} per result, bytes is -1 if the JVM can't measure it
+    private static double[] timeDetector(String name, OutcomeStream stream){
+        long threadId = Thread.currentThread().getId();
+        boolean countBytes = THREADS != null && THREADS.isThreadAllocatedMemorySupported() &&
+                THREADS.isThreadAllocatedMemoryEnabled();
+        long nanos = 0;
+        long bytes = 0;
+        int signals = 0;                    //Keeps the tests from being optimised away
+
+        for (int run = 0; run < TIMED_RUNS; run++){
+            PredictionMatrix predictionMatrix = new PredictionMatrix(stream.numClasses, PREQUENTIAL_WINDOW_SIZE);
+            AbstractChangeDetectorNew detector = createDetector(name, predictionMatrix);
+
+            long startBytes = countBytes ? THREADS.getThreadAllocatedBytes(threadId) : 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < STREAM_SIZE; i++){
+                predictionMatrix.record(stream.actual[i], stream.predicted[i]);
+                signals += detector.testDrift();
+            }
+            nanos += System.nanoTime() - start;
+            bytes += countBytes ? THREADS.getThreadAllocatedBytes(threadId) - startBytes : 0;
+        }
+
+        SINK = signals;
+        double updates = (double) TIMED_RUNS * STREAM_SIZE;
+        return new double[]{nanos / updates, countBytes ? bytes / updates : -1};
+    }
+
+    //Scores the drift signals against the drift points and writes a row of results
+    private static void writeResults(PrintWriter writer, String name, OutcomeStream stream, boolean[] signals,
+                                     double[] cost){
+        int[] driftPoints = stream.driftPoints;
+        boolean[] detected = new boolean[driftPoints.length];
+        int detections = 0;
+        int falseAlarms = 0;
+        long totalDelay = 0;
+
+        int point = -1;                     //Latest drift point at or before the current result
+        for (int i = 0; i < STREAM_SIZE; i++){
+            while (point + 1 < driftPoints.length && driftPoints[point + 1] <= i){
+                point++;
+            }
+            if (!signals[i]){
+                continue;
+            }
+
+            //Only the first signal within MAX_DELAY of a drift point detects it
+            if (point >= 0 && !detected[point] && i - driftPoints[point] < MAX_DELAY){
+                detected[point] = true;
+                detections++;
+                totalDelay += i - driftPoints[point];
+            } else {
+                falseAlarms++;
+            }
+        }
+
+        int missed = driftPoints.length - detections;
+        writer.printf("\n%s,%s,%d,%d,%d,%f,%d,%f,%f,%f,%f",
+                stream.name, name, driftPoints.length, detections, missed,
+                driftPoints.length > 0 ? (double) missed / driftPoints.length : 0,
+                falseAlarms, 1000.0 * falseAlarms / STREAM_SIZE,
+                detections > 0 ? (double) totalDelay / detections : Double.NaN,
+                cost[0], cost[1]);
+    }
+
+    /*Main-----------------------------------------*/
+    public static void main(String[] args) {
+        OutcomeStream[] streams;
+        if (USE_GENERATOR_STREAMS){
+            streams = new OutcomeStream[]{abruptStream(), minorityStream(), ledStream(), staggerStream()};
+        } else {
+            streams = new OutcomeStream[]{abruptStream(), minorityStream()};
+        }
+
+        //Runs every detector once first so the JIT has compiled the shared code before anything is timed
+        for (int d = 0; d < DETECTORS.length; d++){
+            runDetector(DETECTORS[d], streams[0]);
+        }
+
+        try{
+            PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(RESULTS_FILE)));
+            writer.print("Stream,Detector,Drift Points,Detections,Missed,Missed Rate,False Alarms," +
+                    "False Alarms per 1000,Mean Delay,ns per Update,Bytes per Update");
+
+            for (int s = 0; s < streams.length; s++){
+                for (int d = 0; d < DETECTORS.length; d++){
+                    boolean[] signals = runDetector(DETECTORS[d], streams[s]);
+                    double[] cost = timeDetector(DETECTORS[d], streams[s]);
+                    writeResults(writer, DETECTORS[d], streams[s], signals, cost);
+                }
+                System.out.println(String.format("Finished %s", streams[s].name));
+            }
+            writer.close();
+
+        } catch (IOException e) {
+            System.out.println("File couldn't be opened");
+        }
+    }
+}
@@ -12,7 +12,9 @@ import moa.classifiers.Classifier;
 import moa.classifiers.bayes.NaiveBayesMultinomial;
 import moa.classifiers.trees.HoeffdingAdaptiveTree;
 import moa.classifiers.trees.HoeffdingTree;
+import core.MetricsSnapshot;
 import core.PredictionMatrix;
+import core.ClassIndexer;
 import core.InstanceBuffer;
 
 import java.io.BufferedWriter;
@@ -49,7 +51,7 @@ public class Experiment2 {
 
     //Define a mapping of each class to a buffer
     //The key is what is returned when we check Instance.classValue
-    private static final HashMap CLASSES =
+    private static final ClassIndexer CLASSES = ClassIndexer.fromMap(
             new HashMap<Double, Integer>() {{
                 put(0.0, 0);
                 put(1.0, 1);
@@ -61,7 +63,7 @@ public class Experiment2 {
                 put(7.0, 7);
                 put(8.0, 8);
                 put(9.0, 9);
-            }};
+            }});
 
     //For NewLEDGenerator this is the distribution of classes generated for each compositional concept
     private static final double[][] CON = {
@@ -155,6 +157,7 @@ public class Experiment2 {
 
         //Begins prequential test than train
         PredictionMatrix predictionMatrix = new PredictionMatrix(clf, CLASSES, PREQUENTIAL_WINDOW_SIZE);
+        MetricsSnapshot metrics = null;                   //Reused between metric calculations
 
         try{
             PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(RESULTS_FILE)));
@@ -189,18 +192,19 @@ public class Experiment2 {
 
                     //At regular intervals, check how our classifier is performing
                     if (num_instances % CALC_METRICS_INTERVAL == 0) {
+                        metrics = predictionMatrix.snapshot(metrics);
                         writer.printf("\n%d,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f",
-                                num_instances, predictionMatrix.calcAccuracy(),
-                                predictionMatrix.calcPrecision(0), predictionMatrix.calcRecall(0),
-                                predictionMatrix.calcPrecision(1), predictionMatrix.calcRecall(1),
-                                predictionMatrix.calcPrecision(2), predictionMatrix.calcRecall(2),
-                                predictionMatrix.calcPrecision(3), predictionMatrix.calcRecall(3),
-                                predictionMatrix.calcPrecision(4), predictionMatrix.calcRecall(4),
-                                predictionMatrix.calcPrecision(5), predictionMatrix.calcRecall(5),
-                                predictionMatrix.calcPrecision(6), predictionMatrix.calcRecall(6),
-                                predictionMatrix.calcPrecision(7), predictionMatrix.calcRecall(7),
-                                predictionMatrix.calcPrecision(8), predictionMatrix.calcRecall(8),
-                                predictionMatrix.calcPrecision(9), predictionMatrix.calcRecall(9));
+                                num_instances, metrics.getAccuracy(),
+                                metrics.getPrecision(0), metrics.getRecall(0),
+                                metrics.getPrecision(1), metrics.getRecall(1),
+                                metrics.getPrecision(2), metrics.getRecall(2),
+                                metrics.getPrecision(3), metrics.getRecall(3),
+                                metrics.getPrecision(4), metrics.getRecall(4),
+                                metrics.getPrecision(5), metrics.getRecall(5),
+                                metrics.getPrecision(6), metrics.getRecall(6),
+                                metrics.getPrecision(7), metrics.getRecall(7),
+                                metrics.getPrecision(8), metrics.getRecall(8),
+                                metrics.getPrecision(9), metrics.getRecall(9));
                     }
                 }
 
@@ -13,7 +13,9 @@ import generators.NewSTAGGERGenerator;
 import moa.classifiers.Classifier;
 import moa.classifiers.bayes.NaiveBayesMultinomial;
 import moa.classifiers.trees.HoeffdingTree;
+import core.ClassIndexer;
 import core.InstanceBuffer;
+import core.MetricsSnapshot;
 import core.PredictionMatrix;
 
 import java.io.BufferedWriter;
@@ -48,11 +50,11 @@ public class Experiment3 {
 
     //Define a mapping of each class to a buffer
     //The key is what is returned when we check Instance.classValue
-    private static final HashMap CLASSES =
+    private static final ClassIndexer CLASSES = ClassIndexer.fromMap(
             new HashMap<Double, Integer>() {{
                 put(0.0, 0);
                 put(1.0, 1);
-            }};
+            }});
 
     //For NewSTAGGERGenerator this is the concept for positive instances as described above
     private static final int CONCEPT = 3;
@@ -138,6 +140,7 @@ public class Experiment3 {
 
         //Begins prequential test than train
         PredictionMatrix predictionMatrix = new PredictionMatrix(clf, CLASSES, PREQUENTIAL_WINDOW_SIZE);
+        MetricsSnapshot metrics = null;                   //Reused between metric calculations
 
         try{
             PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(RESULTS_FILE)));
@@ -160,10 +163,11 @@ public class Experiment3 {
 
                 //At regular intervals, check how our classifier is performing
                 if (num_instances % CALC_METRICS_INTERVAL == 0) {
+                    metrics = predictionMatrix.snapshot(metrics);
                     writer.printf("\n%d,%f,%f,%f,%f,%f",
-                            num_instances, predictionMatrix.calcAccuracy(),
-                            predictionMatrix.calcPrecision(0),predictionMatrix.calcRecall(0),
-                            predictionMatrix.calcPrecision(1),predictionMatrix.calcRecall(1));
+                            num_instances, metrics.getAccuracy(),
+                            metrics.getPrecision(0),metrics.getRecall(0),
+                            metrics.getPrecision(1),metrics.getRecall(1));
                 }
             }
             writer.close();
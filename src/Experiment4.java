@@ -9,9 +9,12 @@ import com.yahoo.labs.samoa.instances.InstancesHeader;
 import moa.classifiers.Classifier;
 import moa.classifiers.bayes.NaiveBayesMultinomial;
 import moa.classifiers.trees.HoeffdingTree;
+import core.MetricsSnapshot;
 import core.PredictionMatrix;
+import core.ClassIndexer;
 import core.InstanceBuffer;
 import generators.NewLEDGenerator;
+import detectors.DriftTestScheduler;
 import detectors.PerfSim2;
 
 import java.io.BufferedWriter;
@@ -50,11 +53,14 @@ public class Experiment4 {
     //Drift Detector
     private static PerfSim2 DETECTOR;                //Detects change based on cosine similarity of confusion matrices
     private static double ALARM_THRESHOLD = 0.98;    //Alarm threshold
-    private static int DRIFT_TEST_WINDOW = 300;      //How often two confusion matrices are compared
+    private static int DRIFT_TEST_WINDOW = 300;      //Shortest gap between drift tests, i.e. how often two
+                                                     // confusion matrices are compared while the stream changes
+    private static int MAX_DRIFT_TEST_WINDOW = 1200; //Longest gap between drift tests while stable
+    private static DriftTestScheduler SCHEDULER;     //Backs off testing while stable, in steps of the above
 
     //Define a mapping of each class to a buffer
     //The key is what is returned when we check Instance.classValue
-    private static final HashMap CLASSES =
+    private static final ClassIndexer CLASSES = ClassIndexer.fromMap(
             new HashMap<Double, Integer>() {{
                 put(0.0, 0);
                 put(1.0, 1);
@@ -66,7 +72,7 @@ public class Experiment4 {
                 put(7.0, 7);
                 put(8.0, 8);
                 put(9.0, 9);
-            }};
+            }});
 
     //For NewLEDGenerator this is the distribution of classes generated for each compositional concept
     private static final double[][] CON = {
@@ -161,7 +167,9 @@ public class Experiment4 {
 
         //Begins prequential test than train
         PredictionMatrix predictionMatrix = new PredictionMatrix(clf, CLASSES, PREQUENTIAL_WINDOW_SIZE);
+        MetricsSnapshot metrics = null;                   //Reused between metric calculations
         DETECTOR = new PerfSim2(predictionMatrix, ALARM_THRESHOLD);
+        SCHEDULER = new DriftTestScheduler(DETECTOR, DRIFT_TEST_WINDOW, MAX_DRIFT_TEST_WINDOW);
 
         try{
             PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(RESULTS_FILE)));
@@ -177,6 +185,9 @@ public class Experiment4 {
             while (num_instances < STREAM_SIZE){
 
                 STREAM.setClass_proportions(CON[loop_num % CON.length]);
+                if (loop_num > 0){
+                    SCHEDULER.noteConceptChange();       //Only used to report detection delay
+                }
 
                 for (int i = 0; i < INST_PER_CON; i++) {
 
@@ -199,28 +210,29 @@ public class Experiment4 {
 
                     //At regular intervals, check how our classifier is performing
                     if (num_instances % CALC_METRICS_INTERVAL == 0) {
+                        metrics = predictionMatrix.snapshot(metrics);
                         writer.printf("\n%d,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f",
-                                num_instances, predictionMatrix.calcAccuracy(),
-                                predictionMatrix.calcPrecision(0), predictionMatrix.calcRecall(0),
-                                predictionMatrix.calcPrecision(1), predictionMatrix.calcRecall(1),
-                                predictionMatrix.calcPrecision(2), predictionMatrix.calcRecall(2),
-                                predictionMatrix.calcPrecision(3), predictionMatrix.calcRecall(3),
-                                predictionMatrix.calcPrecision(4), predictionMatrix.calcRecall(4),
-                                predictionMatrix.calcPrecision(5), predictionMatrix.calcRecall(5),
-                                predictionMatrix.calcPrecision(6), predictionMatrix.calcRecall(6),
-                                predictionMatrix.calcPrecision(7), predictionMatrix.calcRecall(7),
-                                predictionMatrix.calcPrecision(8), predictionMatrix.calcRecall(8),
-                                predictionMatrix.calcPrecision(9), predictionMatrix.calcRecall(9));
+                                num_instances, metrics.getAccuracy(),
+                                metrics.getPrecision(0), metrics.getRecall(0),
+                                metrics.getPrecision(1), metrics.getRecall(1),
+                                metrics.getPrecision(2), metrics.getRecall(2),
+                                metrics.getPrecision(3), metrics.getRecall(3),
+                                metrics.getPrecision(4), metrics.getRecall(4),
+                                metrics.getPrecision(5), metrics.getRecall(5),
+                                metrics.getPrecision(6), metrics.getRecall(6),
+                                metrics.getPrecision(7), metrics.getRecall(7),
+                                metrics.getPrecision(8), metrics.getRecall(8),
+                                metrics.getPrecision(9), metrics.getRecall(9));
 
                     }
 
                     //Test for concept drift
-                    if (num_instances % DRIFT_TEST_WINDOW == 0){
+                    if (SCHEDULER.isTestDue()){
                         //Per change detector:
                         //0 indicates drift
                         //1 indicates stable
                         //2 indicates warn
-                        drift = DETECTOR.testDrift();
+                        drift = SCHEDULER.testDrift();
                         if ((drift == 0) && reset){
                             clf.resetLearning();
                             reset = false;
@@ -235,6 +247,7 @@ public class Experiment4 {
             }
             writer.close();
             predictionMatrix.printMatrix();
+            System.out.println(SCHEDULER.getSummary());
 
         } catch (IOException e) {
             System.out.println("File couldn't be opened");
@@ -10,8 +10,11 @@ import moa.classifiers.Classifier;
 import moa.classifiers.bayes.NaiveBayesMultinomial;
 import moa.classifiers.trees.HoeffdingAdaptiveTree;
 import moa.classifiers.trees.HoeffdingTree;
+import core.MetricsSnapshot;
 import core.PredictionMatrix;
+import core.ClassIndexer;
 import core.InstanceBuffer;
+import detectors.DriftTestScheduler;
 import detectors.PerfSim2;
 import generators.NewLEDGenerator;
 import generators.NewSTAGGERGenerator;
@@ -56,17 +59,20 @@ public class Experiment5 {
     //Drift Detector
     private static PerfSim2 DETECTOR;                 //Detects change based on cosine similarity of confusion matrices
     private static double ALARM_THRESHOLD = 0.98;    //Alarm threshold
-    private static int DRIFT_TEST_WINDOW = 300;      //How often two confusion matrices are compared
+    private static int DRIFT_TEST_WINDOW = 300;      //Shortest gap between drift tests, i.e. how often two
+                                                     // confusion matrices are compared while the stream changes
+    private static int MAX_DRIFT_TEST_WINDOW = 1200; //Longest gap between drift tests while stable
+    private static DriftTestScheduler SCHEDULER;     //Backs off testing while stable, in steps of the above
 
     //Define a mapping of each class to a buffer
     //The key is what is returned when we check Instance.classValue
     //Define a mapping of each class to a buffer
     //The key is what is returned when we check Instance.classValue
-    private static final HashMap CLASSES =
+    private static final ClassIndexer CLASSES = ClassIndexer.fromMap(
             new HashMap<Double, Integer>() {{
                 put(0.0, 0);
                 put(1.0, 1);
-            }};
+            }});
 
     //Classifier to user
     private static Classifier clf = new HoeffdingAdaptiveTree();
@@ -146,7 +152,9 @@ public class Experiment5 {
 
         //Begins prequential test than train
         PredictionMatrix predictionMatrix = new PredictionMatrix(clf, CLASSES, PREQUENTIAL_WINDOW_SIZE);
+        MetricsSnapshot metrics = null;                   //Reused between metric calculations
         DETECTOR = new PerfSim2(predictionMatrix, ALARM_THRESHOLD);
+        SCHEDULER = new DriftTestScheduler(DETECTOR, DRIFT_TEST_WINDOW, MAX_DRIFT_TEST_WINDOW);
 
         try{
             PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(RESULTS_FILE)));
@@ -161,6 +169,9 @@ public class Experiment5 {
             while (num_instances < STREAM_SIZE){
 
                 STREAM.setConcept((loop_num % 3) + 1);
+                if (loop_num > 0){
+                    SCHEDULER.noteConceptChange();       //Only used to report detection delay
+                }
 
                 for (int i = 0; i < INST_PER_CON; i++) {
 
@@ -183,15 +194,16 @@ public class Experiment5 {
 
                     //At regular intervals, check how our classifier is performing
                     if (num_instances % CALC_METRICS_INTERVAL == 0) {
+                        metrics = predictionMatrix.snapshot(metrics);
                         writer.printf("\n%d,%f,%f,%f,%f,%f",
-                                num_instances, predictionMatrix.calcAccuracy(),
-                                predictionMatrix.calcPrecision(0),predictionMatrix.calcRecall(0),
-                                predictionMatrix.calcPrecision(1),predictionMatrix.calcRecall(1));
+                                num_instances, metrics.getAccuracy(),
+                                metrics.getPrecision(0),metrics.getRecall(0),
+                                metrics.getPrecision(1),metrics.getRecall(1));
                     }
 
                     //Test for concept drift
-                    if (num_instances % DRIFT_TEST_WINDOW == 0){
-                        drift = DETECTOR.testDrift();
+                    if (SCHEDULER.isTestDue()){
+                        drift = SCHEDULER.testDrift();
                         if ((drift == 0) && reset){
                             clf.resetLearning();
                             reset = false;
@@ -206,6 +218,7 @@ public class Experiment5 {
             }
             writer.close();
             predictionMatrix.printMatrix();
+            System.out.println(SCHEDULER.getSummary());
 
         } catch (IOException e) {
             System.out.println("File couldn't be opened");
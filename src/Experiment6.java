@@ -12,8 +12,11 @@ import moa.classifiers.bayes.NaiveBayesMultinomial;
 import moa.classifiers.trees.HoeffdingAdaptiveTree;
 import moa.classifiers.trees.HoeffdingTree;
 import moa.streams.ArffFileStream;
+import core.MetricsSnapshot;
 import core.PredictionMatrix;
+import core.ClassIndexer;
 import core.InstanceBuffer;
+import detectors.DriftTestScheduler;
 import detectors.PerfSim2;
 import generators.NewSTAGGERGenerator;
 
@@ -50,18 +53,20 @@ public class Experiment6 {
     //Drift Detector
     private static PerfSim2 DETECTOR;               //Detects change based on cosine similarity of confusion matrices
     private static double ALARM_THRESHOLD = 0.98;   //Alarm threshold
-    private static int DRIFT_TEST_WINDOW = 300;     //How often the drift detector is engaged
-                                                    // (Has to be 1 for EDDM/FHHDM)
+    private static int DRIFT_TEST_WINDOW = 300;     //Shortest gap between drift tests, i.e. how often two
+                                                    // confusion matrices are compared while the stream changes
+    private static int MAX_DRIFT_TEST_WINDOW = 1200; //Longest gap between drift tests while stable
+    private static DriftTestScheduler SCHEDULER;    //Backs off testing while stable, in steps of the above
 
     //Define a mapping of each class to a buffer
     //The key is what is returned when we check Instance.classValue
     //Define a mapping of each class to a buffer
     //The key is what is returned when we check Instance.classValue
-    private static final HashMap CLASSES =
+    private static final ClassIndexer CLASSES = ClassIndexer.fromMap(
             new HashMap<Double, Integer>() {{
                 put(0.0, 0);
                 put(1.0, 1);
-            }};
+            }});
 
     //Classifier to user
     private static Classifier clf = new NaiveBayes();
@@ -139,7 +144,9 @@ public class Experiment6 {
 
         //Begins prequential test than train
         PredictionMatrix predictionMatrix = new PredictionMatrix(clf, CLASSES, PREQUENTIAL_WINDOW_SIZE);
+        MetricsSnapshot metrics = null;                   //Reused between metric calculations
         DETECTOR = new PerfSim2(predictionMatrix, ALARM_THRESHOLD);
+        SCHEDULER = new DriftTestScheduler(DETECTOR, DRIFT_TEST_WINDOW, MAX_DRIFT_TEST_WINDOW);
 
         try{
             PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(RESULTS_FILE)));
@@ -168,15 +175,16 @@ public class Experiment6 {
 
                 //At regular intervals, check how our classifier is performing
                 if (num_instances % CALC_METRICS_INTERVAL == 0) {
+                    metrics = predictionMatrix.snapshot(metrics);
                     writer.printf("\n%d,%f,%f,%f,%f,%f",
-                            num_instances, predictionMatrix.calcAccuracy(),
-                            predictionMatrix.calcPrecision(0),predictionMatrix.calcRecall(0),
-                            predictionMatrix.calcPrecision(1),predictionMatrix.calcRecall(1));
+                            num_instances, metrics.getAccuracy(),
+                            metrics.getPrecision(0),metrics.getRecall(0),
+                            metrics.getPrecision(1),metrics.getRecall(1));
                 }
 
                 //Test for concept drift
-                if (num_instances % DRIFT_TEST_WINDOW == 0){
-                    drift = DETECTOR.testDrift();
+                if (SCHEDULER.isTestDue()){
+                    drift = SCHEDULER.testDrift();
                     if ((drift == 0) && reset){
                         clf.resetLearning();
                         reset = false;
@@ -189,6 +197,7 @@ public class Experiment6 {
             }
             writer.close();
             predictionMatrix.printMatrix();
+            System.out.println(SCHEDULER.getSummary());
 
         } catch (IOException e) {
             System.out.println("File couldn't be opened");
@@ -0,0 +1,148 @@
+/**
+ * Maps the class values returned by Instance.classValue to class indices without boxing
+ * Use fromMap to build one from a class value -> index mapping: when the class values are small non-negative
+ * integers (the usual case for MOA nominal classes) lookups are a single array read, otherwise a primitive
+ * double -> int hash table is used
+ */
+
+package core;
+
+import java.util.Arrays;
+import java.util.Map;
+
+public abstract class ClassIndexer {
+    private int numClasses;             //Number of different classes
+
+    protected ClassIndexer(int numClasses){
+        this.numClasses = numClasses;
+    }
+
+    //Returns the index of a class value
+    //Throws an IllegalArgumentException for class values that weren't in the mapping
+    public abstract int indexOf(double classValue);
+
+    public int size(){
+        return numClasses;
+    }
+
+    //Builds the fastest indexer for the given class value -> index mapping
+    public static ClassIndexer fromMap(Map<Double, Integer> classes){
+        if (classes.isEmpty()){
+            throw new IllegalArgumentException("At least one class must be mapped");
+        }
+
+        boolean dense = true;
+        double maxValue = 0;
+        for (Map.Entry<Double, Integer> entry : classes.entrySet()){
+            double value = entry.getKey();
+            int index = entry.getValue();
+            if (index < 0 || index >= classes.size()){
+                throw new IllegalArgumentException("Class indices must be between 0 and the number of classes - 1");
+            }
+            if (value < 0 || value != Math.rint(value)){
+                dense = false;
+            }
+            maxValue = Math.max(maxValue, value);
+        }
+
+        //Only worth using a table if it isn't mostly empty
+        if (dense && maxValue < 4 * classes.size() + 16){
+            return new DirectIndexer(classes, (int) maxValue + 1);
+        }
+        return new HashIndexer(classes);
+    }
+
+    //Maps class values 0, 1, ..., numClasses - 1 to themselves
+    public static ClassIndexer identity(int numClasses){
+        if (numClasses < 1){
+            throw new IllegalArgumentException("Number of classes must be > 0");
+        }
+
+        int[] table = new int[numClasses];
+        for (int i = 0; i < numClasses; i++){
+            table[i] = i;
+        }
+        return new DirectIndexer(table, numClasses);
+    }
+
+    private static IllegalArgumentException unknownClass(double classValue){
+        return new IllegalArgumentException("Class value " + classValue + " has no index");
+    }
+
+    //Class values are small non-negative integers so they index a table directly
+    private static final class DirectIndexer extends ClassIndexer {
+        private final int[] table;      //Index of each class value, -1 if unmapped
+
+        DirectIndexer(Map<Double, Integer> classes, int tableSize){
+            super(classes.size());
+            table = new int[tableSize];
+            Arrays.fill(table, -1);
+            for (Map.Entry<Double, Integer> entry : classes.entrySet()){
+                table[(int) (double) entry.getKey()] = entry.getValue();
+            }
+        }
+
+        DirectIndexer(int[] table, int numClasses){
+            super(numClasses);
+            this.table = table;
+        }
+
+        public int indexOf(double classValue){
+            int value = (int) classValue;
+            if (value != classValue || value < 0 || value >= table.length || table[value] < 0){
+                throw unknownClass(classValue);
+            }
+            return table[value];
+        }
+    }
+
+    //Open addressing (linear probing) table keyed by the bits of the class value
+    private static final class HashIndexer extends ClassIndexer {
+        private final long[] keys;
+        private final int[] indices;    //Index of each key, -1 for unused slots
+        private final int mask;
+
+        HashIndexer(Map<Double, Integer> classes){
+            super(classes.size());
+
+            int capacity = 16;
+            while (capacity < classes.size() * 4){
+                capacity <<= 1;
+            }
+            keys = new long[capacity];
+            indices = new int[capacity];
+            Arrays.fill(indices, -1);
+            mask = capacity - 1;
+
+            for (Map.Entry<Double, Integer> entry : classes.entrySet()){
+                long key = bits(entry.getKey());
+                int slot = slotOf(key);
+                while (indices[slot] >= 0){
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                indices[slot] = entry.getValue();
+            }
+        }
+
+        //Treats 0.0 and -0.0 as the same class value
+        private static long bits(double value){
+            return Double.doubleToLongBits(value == 0 ? 0.0 : value);
+        }
+
+        private int slotOf(long key){
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+
+        public int indexOf(double classValue){
+            long key = bits(classValue);
+            for (int slot = slotOf(key); indices[slot] >= 0; slot = (slot + 1) & mask){
+                if (keys[slot] == key){
+                    return indices[slot];
+                }
+            }
+            throw unknownClass(classValue);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * This class maintains a (non-windowed) confusion matrix that several evaluator threads can update at once
+ * Every thread writes to its own stripe of counters so writers never contend or block, and readers sum the stripes
+ * without ever waiting for the writers. Counts only grow, so every cell a reader sees is a count that cell really had
+ * while it was being read, but results recorded during the read may be in some cells and not others (the copy is not
+ * a single point in time)
+ */
+
+package core;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import moa.classifiers.Classifier;
+import moa.core.Utils;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class ConcurrentPredictionMatrix {
+    private Classifier model;           //Trained model (only read through getVotesForInstance)
+    private int numClasses;             //Number of different classes
+    private ClassIndexer classes;       //Mapping of class values to indices
+
+    private volatile Stripe[] stripes = new Stripe[0];      //Every stripe created so far, one per writer thread
+    private final ThreadLocal<Stripe> localStripe = new ThreadLocal<>();
+
+    //Counters owned by a single writer thread
+    private static final class Stripe {
+        final AtomicLongArray cells;
+
+        Stripe(int size){
+            cells = new AtomicLongArray(size);
+        }
+    }
+
+    public ConcurrentPredictionMatrix(Classifier clf, ClassIndexer classes){
+        this.model = clf;
+        this.numClasses = classes.size();
+        this.classes = classes;
+    }
+
+    //Constructor without a classifier, results are fed to it with record
+    public ConcurrentPredictionMatrix(int numClasses){
+        if (numClasses < 1){
+            throw new IllegalArgumentException("Number of classes must be > 0");
+        }
+        this.numClasses = numClasses;
+    }
+
+    /*These methods are called by the evaluator threads----------------------*/
+    //Tests a single instance and records results
+    public boolean predictUpdate (Instance instance){
+        if (model == null){
+            throw new IllegalStateException("Matrix has no classifier, use record instead");
+        }
+
+        int actualClass = classes.indexOf(instance.classValue());
+        int predictedClass = Utils.maxIndex(model.getVotesForInstance(instance));
+        record(actualClass, predictedClass);
+        return actualClass == predictedClass;
+    }
+
+    //Records a test result in the calling thread's stripe
+    public void record (int actualClass, int predictedClass){
+        if (actualClass < 0 || actualClass >= numClasses || predictedClass < 0 || predictedClass >= numClasses){
+            throw new IllegalArgumentException("Class index is out of range");
+        }
+
+        Stripe stripe = localStripe.get();
+        if (stripe == null){
+            stripe = registerStripe();
+        }
+
+        int cell = actualClass * numClasses + predictedClass;
+        stripe.cells.set(cell, stripe.cells.get(cell) + 1);          //Only the owner writes so no CAS is needed
+    }
+
+    //Only happens once per writer thread
+    private synchronized Stripe registerStripe (){
+        Stripe stripe = new Stripe(numClasses * numClasses);
+        Stripe[] current = stripes;
+        Stripe[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = stripe;
+        stripes = updated;
+        localStripe.set(stripe);
+        return stripe;
+    }
+
+    /*These methods are called by readers----------------------*/
+    //Returns a copy of the confusion matrix that is not shared with the writers (see the class comment)
+    public long[][] copyMatrix (){
+        long[] totals = new long[numClasses * numClasses];
+
+        Stripe[] current = stripes;
+        for (int s = 0; s < current.length; s++){
+            AtomicLongArray cells = current[s].cells;
+            for (int i = 0; i < totals.length; i++){
+                totals[i] += cells.get(i);
+            }
+        }
+
+        long[][] matrix = new long[numClasses][numClasses];
+        for (int row = 0; row < numClasses; row++){
+            System.arraycopy(totals, row * numClasses, matrix[row], 0, numClasses);
+        }
+        return matrix;
+    }
+
+    //Returns an independent, non-windowed PredictionMatrix holding a copy of the counts
+    //It has no classifier so it can only be used to calculate metrics or merge
+    //Throws an IllegalStateException if a count no longer fits in a PredictionMatrix (use copyMatrix instead)
+    public PredictionMatrix snapshot (){
+        long[][] counts = copyMatrix();
+        PredictionMatrix snapshot = new PredictionMatrix(numClasses);
+        for (int row = 0; row < numClasses; row++){
+            for (int col = 0; col < numClasses; col++){
+                if (counts[row][col] > Integer.MAX_VALUE){
+                    throw new IllegalStateException("Count is too large for a PredictionMatrix, use copyMatrix");
+                }
+                snapshot.addCounts(row, col, (int) counts[row][col]);
+            }
+        }
+        return snapshot;
+    }
+
+    //Calculates every metric from a copy of the counts
+    public MetricsSnapshot snapshot (MetricsSnapshot reuse){
+        return snapshot().snapshot(reuse);
+    }
+
+    public int getNumClasses(){
+        return numClasses;
+    }
+}
@@ -0,0 +1,15 @@
+/**
+ * Keeps the newest instances of each class, the oldest is evicted once a buffer is full
+ */
+
+package core;
+
+public class FifoPolicy implements RetentionPolicy {
+
+    public int admit(int classInd, int size, int capacity){
+        return size;
+    }
+
+    public void reset(){
+    }
+}
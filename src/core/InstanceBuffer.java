@@ -5,99 +5,224 @@
 package core;
 
 import com.yahoo.labs.samoa.instances.Attribute;
+import com.yahoo.labs.samoa.instances.DenseInstance;
 import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.instances.Instances;
 import com.yahoo.labs.samoa.instances.InstancesHeader;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 
+//Each class has a fixed capacity circular buffer so adding, evicting and removing the head are all O(1)
+//In packed mode the buffers hold the attribute values and weights in primitive arrays instead of Instance objects,
+//and removeHead hands out one reused Instance per class (only valid until the next removeHead)
+//Which instances are kept once a buffer fills up is decided by a RetentionPolicy, by default the newest (FifoPolicy)
 public class InstanceBuffer {
 
     private int bufferSize;                 //Maximum elements stored in each buffer
-    private HashMap classes;                //Mapping of class values to indices
+    private ClassIndexer classes;           //Mapping of class values to indices
     private int numBuffers;                 //Number of buffers to maintain (= to # of classes)
-    private Instances[] buffers;            //Array of buffers
+    private Instance[][] buffers;           //Array of circular buffers (null in packed mode)
+    private int[] heads;                    //Position of the oldest element in each buffer
+    private int[] sizes;                    //Number of elements in each buffer
+    private int nonEmpty;                   //Number of buffers with at least one element
+    private List<Attribute> streamAttributes;   //Used to build Instances copies of the buffers
+    private RetentionPolicy retention;      //Decides which instances are kept
+
+    //Packed mode
+    private InstancesHeader header;         //Dataset of the instances handed out
+    private int numAttributes;              //Values stored per element (including the class)
+    private double[][] values;              //Attribute values of each buffer, element at position p starts at
+                                            // p * numAttributes (null when not packed)
+    private double[][] weights;             //Weight of each element
+    private DenseInstance[] flyweights;     //Instance handed out by removeHead for each class
 
     //Constructor with default buffer size
-    public InstanceBuffer(InstancesHeader streamHeader, HashMap classes){
+    public InstanceBuffer(InstancesHeader streamHeader, ClassIndexer classes){
         this(streamHeader,classes, 20);
     }
 
     //Constructor for user set buffer size
-    public InstanceBuffer(InstancesHeader streamHeader, HashMap classes, int bufferSize){
-        if (bufferSize < 2){
+    public InstanceBuffer(InstancesHeader streamHeader, ClassIndexer classes, int bufferSize){
+        this(streamHeader, classes, bufferSize, false);
+    }
+
+    //Constructor that can store the buffered instances packed into primitive arrays
+    public InstanceBuffer(InstancesHeader streamHeader, ClassIndexer classes, int bufferSize, boolean packed){
+        this(streamHeader, classes, bufferSize, packed, new FifoPolicy());
+    }
+
+    //Constructor with a policy for which instances are kept
+    public InstanceBuffer(InstancesHeader streamHeader, ClassIndexer classes, int bufferSize, boolean packed,
+                          RetentionPolicy retention){
+        if (bufferSize < 2 || retention == null){
             throw new IllegalArgumentException("Invalid buffer parameters passed");
         }
 
         //Initialize class variables
         this.bufferSize = bufferSize;
         this.classes = classes;
+        this.retention = retention;
         numBuffers = streamHeader.numClasses();
-        buffers = new Instances[numBuffers];
+        heads = new int[numBuffers];
+        sizes = new int[numBuffers];
 
-        //Initiates each buffer
-        List<Attribute> streamAttributes = new ArrayList<>();
+        streamAttributes = new ArrayList<>();
         for (int i = 0; i < streamHeader.numAttributes(); i++){
             streamAttributes.add(streamHeader.attribute(i));
         }
 
-        for (int i = 0; i < numBuffers; i++){
-            buffers[i] = new Instances("buffer" + i, streamAttributes, bufferSize);
+        if (packed){
+            header = streamHeader;
+            numAttributes = streamHeader.numAttributes();
+            values = new double[numBuffers][bufferSize * numAttributes];
+            weights = new double[numBuffers][bufferSize];
+            flyweights = new DenseInstance[numBuffers];
+            for (int i = 0; i < numBuffers; i++){
+                flyweights[i] = new DenseInstance(numAttributes);
+                flyweights[i].setDataset(header);
+            }
+        } else {
+            buffers = new Instance[numBuffers][bufferSize];
         }
     }
 
     //Removes all elements from each buffer
     public void emptyBuffers(){
-        for (int i = 0; i < buffers.length; i++){
-            buffers[i].delete();
+        for (int i = 0; i < numBuffers; i++){
+            if (buffers != null){
+                Arrays.fill(buffers[i], null);      //Lets the instances be garbage collected
+            }
+            heads[i] = 0;
+            sizes[i] = 0;
         }
+        nonEmpty = 0;
+        retention.reset();
     }
 
     //Checks if each class buffer has at least one example
     public boolean existsSampleInAllClasses(){
-        boolean sufficientExamples = true;
-
-        for (int i = 0; i < buffers.length; i++){
-            if (buffers[i].numInstances() == 0){
-                sufficientExamples = false;
-                break;
-            }
-        }
-        return sufficientExamples;
+        return nonEmpty == numBuffers;
     }
 
     //Adds a new instance to the appropriate buffer
     public void addInstance(Instance instance){
-        int buffer_ind = (int) classes.get(instance.classValue());
-
-        //If the buffer is full, delete the oldest instance in the buffer
-        if (buffers[buffer_ind].numInstances() == bufferSize){
-            buffers[buffer_ind].delete(0);
+        int buffer_ind = classes.indexOf(instance.classValue());
+        int position = retention.admit(buffer_ind, sizes[buffer_ind], bufferSize);
+
+        if (position < 0){
+            return;
+        } else if (position < sizes[buffer_ind]){
+            //Overwrites the instance the policy chose
+            position += heads[buffer_ind];
+            if (position >= bufferSize){
+                position -= bufferSize;
+            }
+        } else if (sizes[buffer_ind] == bufferSize){
+            //If the buffer is full, the newest instance overwrites the oldest
+            position = heads[buffer_ind];
+            heads[buffer_ind] = next(position);
+        } else {
+            position = heads[buffer_ind] + sizes[buffer_ind];
+            if (position >= bufferSize){
+                position -= bufferSize;
+            }
+            if (sizes[buffer_ind]++ == 0){
+                nonEmpty++;
+            }
         }
 
-        buffers[buffer_ind].add(instance);
+        if (values != null){
+            double[] buffer = values[buffer_ind];
+            int start = position * numAttributes;
+            for (int i = 0; i < numAttributes; i++){
+                buffer[start + i] = instance.value(i);
+            }
+            weights[buffer_ind][position] = instance.weight();
+        } else {
+            buffers[buffer_ind][position] = instance;
+        }
     }
 
     //Returns the first element from each buffer and deletes them from the buffer
+    //If a buffer is empty, that instance in the array will end up Null
     public Instance[] removeHead(){
-        Instance[] head = new Instance[numBuffers];
+        return removeHead(new Instance[numBuffers]);
+    }
+
+    //Same as above but fills head (which needs one element per class) rather than allocating an array
+    public Instance[] removeHead(Instance[] head){
+        if (head.length < numBuffers){
+            throw new IllegalArgumentException("Head array needs an element for each class");
+        }
+
         for (int i = 0; i < numBuffers; i++){
-            try {
-                head[i] = buffers[i].instance(0);
-                buffers[i].delete(0);
-            } catch (IndexOutOfBoundsException e){
-                //If a buffer is empty, that instance in the array will end up Null
-                System.out.println("Warning: Buffer " + i + " was empty [InstanceBuffer]");
+            if (sizes[i] > 0){
+                int position = heads[i];
+                if (values != null){
+                    head[i] = unpack(i, position, flyweights[i]);
+                } else {
+                    head[i] = buffers[i][position];
+                    buffers[i][position] = null;
+                }
+                heads[i] = next(position);
+                if (--sizes[i] == 0){
+                    nonEmpty--;
+                }
+            } else {
+                head[i] = null;
             }
         }
         return head;
     }
 
-    //Returns all the buffers
+    private int next(int position){
+        return position + 1 == bufferSize ? 0 : position + 1;
+    }
+
+    //Copies a packed element into an instance
+    private Instance unpack(int buffer_ind, int position, Instance instance){
+        double[] buffer = values[buffer_ind];
+        int start = position * numAttributes;
+        for (int i = 0; i < numAttributes; i++){
+            instance.setValue(i, buffer[start + i]);
+        }
+        instance.setWeight(weights[buffer_ind][position]);
+        return instance;
+    }
+
+    //Returns a copy of every buffer (oldest element first)
+    //Built on demand, changes to the copies don't affect the buffers
     public Instances[] getBuffers (){
-        return buffers;
+        Instances[] copies = new Instances[numBuffers];
+        for (int i = 0; i < numBuffers; i++){
+            copies[i] = new Instances("buffer" + i, streamAttributes, bufferSize);
+            for (int j = 0; j < sizes[i]; j++){
+                int position = heads[i] + j;
+                if (position >= bufferSize){
+                    position -= bufferSize;
+                }
+
+                if (values != null){
+                    DenseInstance instance = new DenseInstance(numAttributes);
+                    instance.setDataset(header);
+                    copies[i].add(unpack(i, position, instance));
+                } else {
+                    copies[i].add(buffers[i][position]);
+                }
+            }
+        }
+        return copies;
+    }
+
+    //Number of elements in a class's buffer
+    public int getBufferCount (int classInd){
+        return sizes[classInd];
+    }
+
+    public boolean isPacked (){
+        return values != null;
     }
 
     public String toString (){
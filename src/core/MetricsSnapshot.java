@@ -0,0 +1,103 @@
+/**
+ * Holds the per-class metrics and accuracy of a PredictionMatrix at one point in time.
+ * Filled in a single pass by PredictionMatrix.snapshot and meant to be reused between reporting ticks
+ */
+
+package core;
+
+public class MetricsSnapshot {
+    private int numClasses;             //Number of different classes
+
+    //Per-class metrics, -1 indicates an indeterminate case (same as the PredictionMatrix calc methods)
+    double[] precision;
+    double[] recall;
+    double[] specificity;
+    double[] fscore;
+
+    double accuracy;
+    int numElements;                    //Number of elements the metrics were calculated over
+
+    public MetricsSnapshot(int numClasses){
+        if (numClasses < 1){
+            throw new IllegalArgumentException("Number of classes must be > 0");
+        }
+
+        this.numClasses = numClasses;
+        precision = new double[numClasses];
+        recall = new double[numClasses];
+        specificity = new double[numClasses];
+        fscore = new double[numClasses];
+    }
+
+    //Calculates every metric for one class from its true positives and marginals
+    //Shared by everything that fills a snapshot so the indeterminate cases are handled the same way
+    void fillClass (int classInd, double truePositive, double predictedPositive, double classGenerated,
+                    double total){
+        double p = predictedPositive == 0 ? -1 : truePositive/predictedPositive;
+        double r = classGenerated == 0 ? -1 : truePositive/classGenerated;
+
+        double s = -1;
+        if (classGenerated != total){
+            double falsePositive = predictedPositive - truePositive;
+            double trueNegative = total - classGenerated - falsePositive;
+            s = trueNegative/(trueNegative + falsePositive);
+        }
+
+        double f = 0;
+        if (p == -1 || r == -1){
+            f = -1;
+        } else if (p + r != 0){
+            f = (2 * p * r)/(p + r);
+        }
+
+        precision[classInd] = p;
+        recall[classInd] = r;
+        specificity[classInd] = s;
+        fscore[classInd] = f;
+    }
+
+    public int getNumClasses(){
+        return numClasses;
+    }
+
+    public double getPrecision(int classInd){
+        return precision[classInd];
+    }
+
+    public double getRecall(int classInd){
+        return recall[classInd];
+    }
+
+    public double getSpecificity(int classInd){
+        return specificity[classInd];
+    }
+
+    public double getFScore(int classInd){
+        return fscore[classInd];
+    }
+
+    public double getAccuracy(){
+        return accuracy;
+    }
+
+    public int getNumElements(){
+        return numElements;
+    }
+
+    //The arrays below are returned as is (not copied), they are overwritten by the next snapshot
+    public double[] getPrecisions(){
+        return precision;
+    }
+
+    public double[] getRecalls(){
+        return recall;
+    }
+
+    public double[] getSpecificities(){
+        return specificity;
+    }
+
+    public double[] getFScores(){
+        return fscore;
+    }
+}
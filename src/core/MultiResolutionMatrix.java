@@ -0,0 +1,291 @@
+/**
+ * This class keeps a bucketed history of confusion matrices so metrics can be read over any window length from a
+ * single prediction stream. Recent predictions are stored in fine buckets and older ones in progressively coarser
+ * buckets (each level holds buckets twice the size of the level below it), so memory stays bounded while windows
+ * from hundreds up to millions of instances can be answered in O(number of buckets)
+ *
+ * Attach it to a PredictionMatrix with addListener so it is fed by the same predictUpdate. Windows are answered
+ * with whole buckets, so the covered length can exceed the requested length by at most one bucket
+ * Every bucket is a dense numClasses^2 matrix, so class counts above PredictionMatrix.SPARSE_THRESHOLD aren't supported
+ */
+
+package core;
+
+import java.util.Arrays;
+
+public class MultiResolutionMatrix implements PredictionListener {
+    private int numClasses;             //Number of different classes
+    private int bucketSize;             //Number of predictions in a level 0 bucket
+    private int bucketsPerLevel;        //Number of buckets kept at each level before the oldest two are merged
+    private int numLevels;              //Number of levels, predictions older than the last level are dropped
+
+    //Bucket pool, each bucket holds a flattened confusion matrix with its marginals
+    private int[][] cells;              //Flattened counts, indexed actual * numClasses + predicted
+    private int[][] rowSums;            //Counts of each actual class
+    private int[][] colSums;            //Counts of each predicted class
+    private int[] traces;               //Correct predictions
+    private int[] counts;               //Total predictions
+    private int[] freeBuckets;          //Stack of unused bucket ids
+    private int numFree;
+
+    private int current;                //Bucket currently being filled
+    private int[][] levels;             //Bucket ids at each level ordered oldest to newest
+    private int[] levelSizes;           //Number of buckets at each level
+    private int[] collected;            //Scratch space holding the bucket ids that cover a window
+
+    //Constructor with default bucket layout (covers a bit over 13 million predictions)
+    public MultiResolutionMatrix(int numClasses){
+        this(numClasses, 50, 4, 16);
+    }
+
+    public MultiResolutionMatrix(int numClasses, int bucketSize, int bucketsPerLevel, int numLevels){
+        if (numClasses < 1 || bucketSize < 1 || bucketsPerLevel < 2 || numLevels < 1 || numLevels > 30){
+            throw new IllegalArgumentException("Invalid multi-resolution matrix parameters passed");
+        }
+        if (numClasses > PredictionMatrix.SPARSE_THRESHOLD){
+            throw new IllegalArgumentException("Multi-resolution matrix supports at most " +
+                    PredictionMatrix.SPARSE_THRESHOLD + " classes");
+        }
+
+        this.numClasses = numClasses;
+        this.bucketSize = bucketSize;
+        this.bucketsPerLevel = bucketsPerLevel;
+        this.numLevels = numLevels;
+
+        //Each level can briefly hold one extra bucket before merging, plus the bucket being filled
+        int poolSize = numLevels * (bucketsPerLevel + 1) + 1;
+        cells = new int[poolSize][numClasses * numClasses];
+        rowSums = new int[poolSize][numClasses];
+        colSums = new int[poolSize][numClasses];
+        traces = new int[poolSize];
+        counts = new int[poolSize];
+        freeBuckets = new int[poolSize];
+        levels = new int[numLevels][bucketsPerLevel + 1];
+        levelSizes = new int[numLevels];
+        collected = new int[poolSize];
+
+        reset();
+    }
+
+    //Drops all stored predictions
+    public void reset(){
+        for (int i = 0; i < freeBuckets.length; i++){
+            freeBuckets[i] = i;
+        }
+        numFree = freeBuckets.length;
+        Arrays.fill(levelSizes, 0);
+        current = acquireBucket();
+    }
+
+    /*These methods pertain to feeding the buckets----------------------*/
+    public void predictionAdded(int actualClass, int predictedClass){
+        int id = current;
+        cells[id][actualClass * numClasses + predictedClass]++;
+        rowSums[id][actualClass]++;
+        colSums[id][predictedClass]++;
+        if (actualClass == predictedClass){
+            traces[id]++;
+        }
+        counts[id]++;
+
+        if (counts[id] == bucketSize){
+            pushBucket(0, id);
+            current = acquireBucket();
+        }
+    }
+
+    //Fills the current bucket a chunk at a time rather than one result at a time
+    public void predictionsAdded(int actualClass, int predictedClass, int count){
+        while (count > 0){
+            int id = current;
+            int chunk = Math.min(count, bucketSize - counts[id]);
+            cells[id][actualClass * numClasses + predictedClass] += chunk;
+            rowSums[id][actualClass] += chunk;
+            colSums[id][predictedClass] += chunk;
+            if (actualClass == predictedClass){
+                traces[id] += chunk;
+            }
+            counts[id] += chunk;
+            count -= chunk;
+
+            if (counts[id] == bucketSize){
+                pushBucket(0, id);
+                current = acquireBucket();
+            }
+        }
+    }
+
+    //Evictions from a windowed source matrix are ignored, this keeps its own (longer) history
+    public void predictionRemoved(int actualClass, int predictedClass){
+    }
+
+    public void matrixReset(){
+        reset();
+    }
+
+    //Adds a full bucket as the newest at a level, merging the two oldest into the next level when there are too many
+    private void pushBucket(int level, int id){
+        int[] levelBuckets = levels[level];
+        levelBuckets[levelSizes[level]++] = id;
+
+        if (levelSizes[level] > bucketsPerLevel){
+            int older = levelBuckets[0];
+            int newer = levelBuckets[1];
+            System.arraycopy(levelBuckets, 2, levelBuckets, 0, levelSizes[level] - 2);
+            levelSizes[level] -= 2;
+
+            if (level + 1 < numLevels){
+                mergeInto(older, newer);
+                releaseBucket(newer);
+                pushBucket(level + 1, older);
+            } else {
+                //History beyond the last level is dropped
+                releaseBucket(older);
+                releaseBucket(newer);
+            }
+        }
+    }
+
+    private void mergeInto(int target, int source){
+        int[] targetCells = cells[target];
+        int[] sourceCells = cells[source];
+        for (int i = 0; i < targetCells.length; i++){
+            targetCells[i] += sourceCells[i];
+        }
+        for (int i = 0; i < numClasses; i++){
+            rowSums[target][i] += rowSums[source][i];
+            colSums[target][i] += colSums[source][i];
+        }
+        traces[target] += traces[source];
+        counts[target] += counts[source];
+    }
+
+    private int acquireBucket(){
+        int id = freeBuckets[--numFree];
+        Arrays.fill(cells[id], 0);
+        Arrays.fill(rowSums[id], 0);
+        Arrays.fill(colSums[id], 0);
+        traces[id] = 0;
+        counts[id] = 0;
+        return id;
+    }
+
+    private void releaseBucket(int id){
+        freeBuckets[numFree++] = id;
+    }
+
+    /*These methods pertain to reading a window----------------------*/
+    //Collects the newest buckets until they cover windowLength predictions, returns the number of buckets used
+    private int collect(int windowLength){
+        int n = 0;
+        int covered = 0;
+
+        if (counts[current] > 0){
+            collected[n++] = current;
+            covered += counts[current];
+        }
+
+        //Lower levels always hold newer predictions than higher levels
+        for (int level = 0; level < numLevels && covered < windowLength; level++){
+            for (int i = levelSizes[level] - 1; i >= 0 && covered < windowLength; i--){
+                int id = levels[level][i];
+                collected[n++] = id;
+                covered += counts[id];
+            }
+        }
+        return n;
+    }
+
+    //Returns the number of predictions actually used to answer a window of windowLength
+    //This is smaller than windowLength only when not enough history has been stored yet
+    public int windowCovered(int windowLength){
+        int n = collect(windowLength);
+        int covered = 0;
+        for (int i = 0; i < n; i++){
+            covered += counts[collected[i]];
+        }
+        return covered;
+    }
+
+    //Calculates the accuracy over (approximately) the last windowLength predictions
+    public double calcAccuracy(int windowLength){
+        int n = collect(windowLength);
+        double correct = 0;
+        double total = 0;
+        for (int i = 0; i < n; i++){
+            correct += traces[collected[i]];
+            total += counts[collected[i]];
+        }
+        return correct/total;
+    }
+
+    //Calculates every metric over (approximately) the last windowLength predictions
+    //Results are written into reuse when it matches the number of classes, otherwise a new snapshot is made
+    public MetricsSnapshot snapshot(int windowLength, MetricsSnapshot reuse){
+        MetricsSnapshot snapshot = reuse;
+        if (snapshot == null || snapshot.getNumClasses() != numClasses){
+            snapshot = new MetricsSnapshot(numClasses);
+        }
+
+        int n = collect(windowLength);
+        double correct = 0;
+        double total = 0;
+        for (int i = 0; i < n; i++){
+            correct += traces[collected[i]];
+            total += counts[collected[i]];
+        }
+
+        for (int c = 0; c < numClasses; c++){
+            double truePositive = 0;
+            double predictedPositive = 0;
+            double classGenerated = 0;
+            for (int i = 0; i < n; i++){
+                int id = collected[i];
+                truePositive += cells[id][c * numClasses + c];
+                predictedPositive += colSums[id][c];
+                classGenerated += rowSums[id][c];
+            }
+            snapshot.fillClass(c, truePositive, predictedPositive, classGenerated, total);
+        }
+
+        snapshot.accuracy = correct/total;
+        snapshot.numElements = (int) total;
+        return snapshot;
+    }
+
+    //Sums the confusion matrix over (approximately) the last windowLength predictions into out
+    //Returns the number of predictions covered
+    public int windowMatrix(int windowLength, int[][] out){
+        if (out.length != numClasses){
+            throw new IllegalArgumentException("Output matrix does not match the number of classes");
+        }
+
+        for (int row = 0; row < numClasses; row++){
+            Arrays.fill(out[row], 0);
+        }
+
+        int n = collect(windowLength);
+        int covered = 0;
+        for (int i = 0; i < n; i++){
+            int id = collected[i];
+            int[] bucketCells = cells[id];
+            for (int row = 0; row < numClasses; row++){
+                int offset = row * numClasses;
+                for (int col = 0; col < numClasses; col++){
+                    out[row][col] += bucketCells[offset + col];
+                }
+            }
+            covered += counts[id];
+        }
+        return covered;
+    }
+
+    //Maximum number of predictions kept, the oldest level drops two buckets at a time so retained history is lower
+    public long getCapacity(){
+        return (long) bucketSize * bucketsPerLevel * ((1L << numLevels) - 1);
+    }
+
+    public int getNumClasses(){
+        return numClasses;
+    }
+}
@@ -0,0 +1,21 @@
+/**
+ * Receives every change made to a PredictionMatrix so other structures can be fed from the same prediction stream
+ * without testing the instance again
+ */
+
+package core;
+
+public interface PredictionListener {
+
+    //A test result was added to the matrix
+    void predictionAdded(int actualClass, int predictedClass);
+
+    //count identical test results were added at once (when merging or reading matrices), the cell already holds them
+    void predictionsAdded(int actualClass, int predictedClass, int count);
+
+    //A test result was evicted from the matrix (only happens in windowed matrices)
+    void predictionRemoved(int actualClass, int predictedClass);
+
+    //The matrix was cleared
+    void matrixReset();
+}
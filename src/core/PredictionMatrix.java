@@ -2,6 +2,7 @@
  * Created by Peter on 9/21/2017.
  * This class maintains a windowed confusion matrix (actual class v. predicted class) incrementally for a set of
  * test samples
+ * It can also run in a fading mode where older test results decay geometrically instead of being windowed
  */
 
 package core;
@@ -10,92 +11,533 @@ import com.yahoo.labs.samoa.instances.Instance;
 import moa.classifiers.Classifier;
 import moa.core.Utils;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.Queue;
 
 public class PredictionMatrix {
+    //Above this many classes the confusion matrix is stored sparsely (a dense matrix would be numClasses^2 ints)
+    public static final int SPARSE_THRESHOLD = 1000;
+
     private Classifier model;           //Trained model
     private int numClasses;             //Number of different classes
-    private HashMap classes;            //Mapping of class values to indices
+    private ClassIndexer classes;       //Mapping of class values to indices
 
     private boolean windowed = false;   //Without a sliding window it just records all test results
     private int windowLength = 0;       //Width of sliding window
 
-    private int[] lastPrediction;
-    private Queue<Integer[]> window;    //Test results for all samples in the window
+    private int[] lastPrediction;       //{actual, predicted} of the latest test, reused between tests
+    private int[] window;               //Circular buffer of test results packed as actual * numClasses + predicted
+    private int windowHead;             //Index of the oldest result in the window
+    private int windowCount;            //Number of results currently in the window
     private int matrix[][];             //"Confusion matrix"
+    private SparseConfusionMatrix sparse;   //Used instead of matrix when there are more than SPARSE_THRESHOLD classes
     private int numElements;            //Number of elements stored in matrix
+    private int[] rowSums;              //Number of elements of each actual class i.e. TP + FN
+    private int[] colSums;              //Number of elements of each predicted class i.e. TP + FP
+    private int trace;                  //Number of correct predictions
+
+    //Fading mode keeps weights scaled by a global factor that grows every update instead of decaying every cell
+    private boolean fading = false;     //Whether older test results decay geometrically
+    private double fadingFactor = 1;    //Decay applied to every older result per new result
+    private double increment;           //Weight added for the newest result, i.e. 1/fadingFactor^t since renormalising
+    private double[][] weights;         //Scaled fading confusion matrix
+    private double[] rowWeights;        //Scaled weight of each actual class
+    private double[] colWeights;        //Scaled weight of each predicted class
+    private double traceWeight;         //Scaled weight of correct predictions
+    private double totalWeight;         //Scaled weight of all predictions
+
+    private PredictionListener[] listeners = new PredictionListener[0];    //Notified of every matrix change
 
     /*These methods pertain to the construction/maintenance of the matrix----------------------*/
     //Constructor for non-windowed matrix
-    public PredictionMatrix(Classifier clf, HashMap classes){
+    public PredictionMatrix(Classifier clf, ClassIndexer classes){
         this(clf, classes, 0);
     }
 
     //Constructor for windowed matrix
-    public PredictionMatrix(Classifier clf, HashMap classes, int windowLength){
+    public PredictionMatrix(Classifier clf, ClassIndexer classes, int windowLength){
+        this(clf, classes, classes.size(), windowLength, 1);
+    }
+
+    //Constructor for fading matrix, each new result multiplies the weight of all older results by fadingFactor
+    public PredictionMatrix(Classifier clf, ClassIndexer classes, double fadingFactor){
+        this(clf, classes, classes.size(), 0, checkFadingFactor(fadingFactor));
+    }
+
+    //The constructors below make a matrix without a classifier, results are fed to it with record/recordVotes
+    //e.g. from another pipeline stage, another thread or a log of predictions
+
+    //Constructor for non-windowed matrix without a classifier
+    public PredictionMatrix(int numClasses){
+        this(numClasses, 0);
+    }
+
+    //Constructor for windowed matrix without a classifier
+    public PredictionMatrix(int numClasses, int windowLength){
+        this(null, null, numClasses, windowLength, 1);
+    }
+
+    //Constructor for fading matrix without a classifier
+    public PredictionMatrix(int numClasses, double fadingFactor){
+        this(null, null, numClasses, 0, checkFadingFactor(fadingFactor));
+    }
+
+    private PredictionMatrix(Classifier clf, ClassIndexer classes, int numClasses, int windowLength,
+                             double fadingFactor){
+        if (numClasses < 1){
+            throw new IllegalArgumentException("Number of classes must be > 0");
+        }
+
         this.model = clf;
-        numClasses = classes.size();
+        this.numClasses = numClasses;
         this.classes = classes;
 
         if (windowLength > 0) {
             this.windowLength = windowLength;
             windowed = true;
-            window = new LinkedList<>();
+            window = new int[windowLength];
+        }
+
+        if (numClasses > SPARSE_THRESHOLD && fadingFactor < 1){
+            throw new IllegalArgumentException("Fading mode is not supported for more than " + SPARSE_THRESHOLD +
+                    " classes");
+        }
+
+        if (fadingFactor < 1){
+            this.fadingFactor = fadingFactor;
+            fading = true;
+            weights = new double[numClasses][numClasses];
+            rowWeights = new double[numClasses];
+            colWeights = new double[numClasses];
+            increment = 1;
         }
 
-        matrix = new int[numClasses][numClasses];
+        if (numClasses > SPARSE_THRESHOLD){
+            sparse = new SparseConfusionMatrix(numClasses);
+        } else {
+            matrix = new int[numClasses][numClasses];
+        }
+        rowSums = new int[numClasses];
+        colSums = new int[numClasses];
+        lastPrediction = new int[2];
+    }
+
+    private static double checkFadingFactor(double fadingFactor){
+        if (fadingFactor <= 0 || fadingFactor >= 1){
+            throw new IllegalArgumentException("Fading factor must be between 0 and 1 (exclusive)");
+        }
+        return fadingFactor;
     }
 
     //Tests a single instance and records results
     public boolean predictUpdate (Instance instance){
-        int actualClass = (int) classes.get(instance.classValue());
+        if (model == null){
+            throw new IllegalStateException("Matrix has no classifier, use record or recordVotes instead");
+        }
+
+        int actualClass = classes.indexOf(instance.classValue());
         int predictedClass = Utils.maxIndex(model.getVotesForInstance(instance));
-        Integer[] pair = {actualClass, predictedClass};
+        recordResult(actualClass, predictedClass);
+
+        //Returns whether the prediction was correct
+        return actualClass == predictedClass;
+    }
+
+    //Records a prediction that was already made, returns whether it was correct
+    public boolean record (int actualClass, int predictedClass){
+        checkClass(actualClass);
+        checkClass(predictedClass);
+        recordResult(actualClass, predictedClass);
+        return actualClass == predictedClass;
+    }
+
+    //Records a prediction from the votes a classifier gave (the class with the most votes is the prediction)
+    //Returns whether it was correct
+    public boolean recordVotes (int actualClass, double[] votes){
+        return record(actualClass, Utils.maxIndex(votes));
+    }
+
+    //Records the first n predictions of a batch, returns the number that were correct
+    public int record (int[] actualClasses, int[] predictedClasses, int n){
+        if (n > actualClasses.length || n > predictedClasses.length){
+            throw new IllegalArgumentException("Batch is shorter than the number of predictions to record");
+        }
 
+        int correct = 0;
+        for (int i = 0; i < n; i++){
+            int actualClass = actualClasses[i];
+            int predictedClass = predictedClasses[i];
+            checkClass(actualClass);
+            checkClass(predictedClass);
+            recordResult(actualClass, predictedClass);
+            if (actualClass == predictedClass){
+                correct++;
+            }
+        }
+        return correct;
+    }
+
+    private void checkClass (int classInd){
+        if (classInd < 0 || classInd >= numClasses){
+            throw new IllegalArgumentException("Class index " + classInd + " is out of range");
+        }
+    }
+
+    //Records a single test result
+    private void recordResult (int actualClass, int predictedClass){
         //If windowed, whenever a new prediction is made, the oldest is removed from the matrix
         if (windowed){
-            window.add(pair);
-            if (window.size() > windowLength){
-                Integer[] removed = window.remove();
-                matrix[removed[0]][removed[1]]--;
+            int code = actualClass * numClasses + predictedClass;
+            if (windowCount == windowLength){
+                //Window is full so the new result overwrites the oldest one
+                int removed = window[windowHead];
+                removeCount(removed / numClasses, removed % numClasses);
+                window[windowHead] = code;
+                windowHead = (windowHead + 1) % windowLength;
             } else {
+                window[(windowHead + windowCount) % windowLength] = code;
+                windowCount++;
                 numElements++;
             }
         } else {
             numElements++;
         }
 
+        if (fading){
+            addWeight(actualClass, predictedClass);
+        }
+
         //Class updates
-        matrix[actualClass][predictedClass]++;
-        lastPrediction = new int[]{actualClass, predictedClass};
+        addCount(actualClass, predictedClass);
+        lastPrediction[0] = actualClass;
+        lastPrediction[1] = predictedClass;
+    }
 
-        //Returns whether the prediction was correct
-        return actualClass == predictedClass;
+    //Adds a single test result to the matrix and its marginals
+    private void addCount (int actualClass, int predictedClass){
+        if (sparse != null){
+            sparse.add(actualClass, predictedClass, 1);
+        } else {
+            matrix[actualClass][predictedClass]++;
+        }
+        rowSums[actualClass]++;
+        colSums[predictedClass]++;
+        if (actualClass == predictedClass){
+            trace++;
+        }
+
+        for (int i = 0; i < listeners.length; i++){
+            listeners[i].predictionAdded(actualClass, predictedClass);
+        }
+    }
+
+    //Removes a single test result from the matrix and its marginals
+    private void removeCount (int actualClass, int predictedClass){
+        if (sparse != null){
+            sparse.add(actualClass, predictedClass, -1);
+        } else {
+            matrix[actualClass][predictedClass]--;
+        }
+        rowSums[actualClass]--;
+        colSums[predictedClass]--;
+        if (actualClass == predictedClass){
+            trace--;
+        }
+
+        for (int i = 0; i < listeners.length; i++){
+            listeners[i].predictionRemoved(actualClass, predictedClass);
+        }
     }
 
+    //Adds a result to the fading matrix
+    //Rather than decaying every cell, the weight of new results grows by 1/fadingFactor each time which gives the
+    //same ratios, and everything is rescaled once the weights get large
+    private void addWeight (int actualClass, int predictedClass){
+        increment /= fadingFactor;
+        if (increment > 1e150){
+            renormalise();
+        }
+
+        weights[actualClass][predictedClass] += increment;
+        rowWeights[actualClass] += increment;
+        colWeights[predictedClass] += increment;
+        if (actualClass == predictedClass){
+            traceWeight += increment;
+        }
+        totalWeight += increment;
+    }
+
+    //Rescales the fading weights so the newest result has a weight of 1
+    private void renormalise (){
+        double scale = 1 / increment;
+        for (int i = 0; i < numClasses; i++){
+            for (int j = 0; j < numClasses; j++){
+                weights[i][j] *= scale;
+            }
+            rowWeights[i] *= scale;
+            colWeights[i] *= scale;
+        }
+        traceWeight *= scale;
+        totalWeight *= scale;
+        increment = 1;
+    }
+
+    //Clears all recorded test results (including the window)
     public void resetMatrix(){
-        matrix = new int[numClasses][numClasses];
+        if (sparse != null){
+            sparse.clear();
+        } else {
+            for (int i = 0; i < numClasses; i++){
+                Arrays.fill(matrix[i], 0);
+            }
+        }
+        Arrays.fill(rowSums, 0);
+        Arrays.fill(colSums, 0);
+        trace = 0;
+        numElements = 0;
+        windowHead = 0;
+        windowCount = 0;
+
+        if (fading){
+            for (int i = 0; i < numClasses; i++){
+                Arrays.fill(weights[i], 0);
+            }
+            Arrays.fill(rowWeights, 0);
+            Arrays.fill(colWeights, 0);
+            traceWeight = 0;
+            totalWeight = 0;
+            increment = 1;
+        }
+
+        for (int i = 0; i < listeners.length; i++){
+            listeners[i].matrixReset();
+        }
+    }
+
+    //Registers a listener that is notified whenever a test result is added to or evicted from the matrix
+    public void addListener (PredictionListener listener){
+        if (listener == null){
+            throw new IllegalArgumentException("Listener can't be null");
+        }
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+    }
+
+    public void removeListener (PredictionListener listener){
+        for (int i = 0; i < listeners.length; i++){
+            if (listeners[i] == listener){
+                PredictionListener[] remaining = new PredictionListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, remaining, 0, i);
+                System.arraycopy(listeners, i + 1, remaining, i, listeners.length - i - 1);
+                listeners = remaining;
+                return;
+            }
+        }
     }
 
+    //Returns {actual, predicted} for the latest test
+    //The array is reused between tests so callers should read it rather than hold on to it
     public int[] getLastPrediction () {
         return lastPrediction;
+    }
+
+    /*These methods pertain to combining matrices (e.g. from shards of one stream)----------------------*/
+    //Adds the results held by other into this matrix
+    //Windowed: other must be windowed too, its window is replayed oldest first as if it followed this one
+    //Fading: other must use the same fading factor, both are treated as having seen their newest result together
+    //Otherwise: the counts other currently holds are added
+    public void merge (PredictionMatrix other){
+        if (other.numClasses != numClasses){
+            throw new IllegalArgumentException("Matrices do not have the same number of classes");
+        }
 
+        if (windowed){
+            if (!other.windowed){
+                throw new IllegalArgumentException("A windowed matrix can only merge another windowed matrix");
+            }
+            for (int i = 0; i < other.windowCount; i++){
+                int code = other.window[(other.windowHead + i) % other.windowLength];
+                recordResult(code / numClasses, code % numClasses);
+            }
+            return;
+        }
+
+        if (fading){
+            if (!other.fading || other.fadingFactor != fadingFactor){
+                throw new IllegalArgumentException("A fading matrix can only merge one with the same fading factor");
+            }
+            //Brings other's weights onto this matrix's scale
+            double scale = increment / other.increment;
+            for (int i = 0; i < numClasses; i++){
+                for (int j = 0; j < numClasses; j++){
+                    weights[i][j] += other.weights[i][j] * scale;
+                }
+                rowWeights[i] += other.rowWeights[i] * scale;
+                colWeights[i] += other.colWeights[i] * scale;
+            }
+            traceWeight += other.traceWeight * scale;
+            totalWeight += other.totalWeight * scale;
+        }
+
+        if (other.sparse != null){
+            SparseConfusionMatrix cells = other.sparse;
+            for (int slot = 0; slot < cells.getCapacity(); slot++){
+                if (cells.isUsed(slot)){
+                    addCounts(cells.getActual(slot), cells.getPredicted(slot), cells.getValue(slot));
+                }
+            }
+        } else {
+            for (int i = 0; i < numClasses; i++){
+                for (int j = 0; j < numClasses; j++){
+                    addCounts(i, j, other.matrix[i][j]);
+                }
+            }
+        }
+    }
+
+    //Adds count results for one cell at once (not for windowed matrices as there is no order to replay)
+    void addCounts (int actualClass, int predictedClass, int count){
+        if (count == 0){
+            return;
+        }
+
+        numElements += count;
+        if (sparse != null){
+            sparse.add(actualClass, predictedClass, count);
+        } else {
+            matrix[actualClass][predictedClass] += count;
+        }
+        rowSums[actualClass] += count;
+        colSums[predictedClass] += count;
+        if (actualClass == predictedClass){
+            trace += count;
+        }
+
+        for (int i = 0; i < listeners.length; i++){
+            listeners[i].predictionsAdded(actualClass, predictedClass, count);
+        }
+    }
+
+    //Writes the results held by this matrix in a compact form (only non-zero cells, or the window contents)
+    //Read it back with readFrom, e.g. to merge results from another process
+    public void writeTo (DataOutput out) throws IOException {
+        out.writeInt(numClasses);
+        out.writeInt(windowLength);
+        out.writeDouble(fadingFactor);
+
+        if (windowed){
+            out.writeInt(windowCount);
+            for (int i = 0; i < windowCount; i++){
+                out.writeInt(window[(windowHead + i) % windowLength]);
+            }
+            return;
+        }
+
+        if (sparse != null){
+            out.writeInt(sparse.size());
+            for (int slot = 0; slot < sparse.getCapacity(); slot++){
+                if (sparse.isUsed(slot)){
+                    out.writeInt(sparse.getActual(slot) * numClasses + sparse.getPredicted(slot));
+                    out.writeInt(sparse.getValue(slot));
+                }
+            }
+            return;
+        }
+
+        int nonZero = 0;
+        for (int i = 0; i < numClasses; i++){
+            for (int j = 0; j < numClasses; j++){
+                if (matrix[i][j] != 0 || (fading && weights[i][j] != 0)){
+                    nonZero++;
+                }
+            }
+        }
+
+        out.writeInt(nonZero);
+        for (int i = 0; i < numClasses; i++){
+            for (int j = 0; j < numClasses; j++){
+                if (matrix[i][j] != 0 || (fading && weights[i][j] != 0)){
+                    out.writeInt(i * numClasses + j);
+                    out.writeInt(matrix[i][j]);
+                    if (fading){
+                        out.writeDouble(weights[i][j] / increment);
+                    }
+                }
+            }
+        }
+    }
+
+    //Reads a matrix written by writeTo
+    //The matrix has no classifier, it can be merged into another matrix or fed with record
+    public static PredictionMatrix readFrom (DataInput in) throws IOException {
+        int n = in.readInt();
+        int windowLength = in.readInt();
+        double fadingFactor = in.readDouble();
+
+        PredictionMatrix matrix = new PredictionMatrix(null, null, n, windowLength, fadingFactor);
+
+        if (matrix.windowed){
+            int count = in.readInt();
+            for (int i = 0; i < count; i++){
+                int code = in.readInt();
+                matrix.recordResult(code / n, code % n);
+            }
+            return matrix;
+        }
+
+        int nonZero = in.readInt();
+        for (int k = 0; k < nonZero; k++){
+            int code = in.readInt();
+            int row = code / n;
+            int col = code % n;
+            matrix.addCounts(row, col, in.readInt());
+
+            if (matrix.fading){
+                double weight = in.readDouble();
+                matrix.weights[row][col] = weight;
+                matrix.rowWeights[row] += weight;
+                matrix.colWeights[col] += weight;
+                if (row == col){
+                    matrix.traceWeight += weight;
+                }
+                matrix.totalWeight += weight;
+            }
+        }
+        return matrix;
     }
 
     /*These methods pertain to calculating various metrics from the matrix----------------------*/
+    //All of these are O(1) since the row sums, column sums and trace are kept up to date by predictUpdate
+    //In fading mode they're calculated from the (scaled) weights, the scale cancels out in every ratio
+
+    private double truePositives (int classInd){
+        return fading ? weights[classInd][classInd] : getCount(classInd, classInd);
+    }
+
+    private double predictedPositives (int classInd){
+        return fading ? colWeights[classInd] : colSums[classInd];
+    }
+
+    private double actualPositives (int classInd){
+        return fading ? rowWeights[classInd] : rowSums[classInd];
+    }
+
+    private double correctTotal (){
+        return fading ? traceWeight : trace;
+    }
+
+    private double total (){
+        return fading ? totalWeight : numElements;
+    }
+
     //Calculates the precision with respect to a specific class
     //-1 indicates an indeterminate case
     public double calcPrecision (int classInd){
-        double truePositive = matrix[classInd][classInd];            //Positive and correctly predicted
+        double truePositive = truePositives(classInd);              //Positive and correctly predicted
         double precision;
-        double predictedPositive = 0;                                //All predicted positives e.g. TP + FP
-
-        for (int row = 0; row < numClasses; row++) {
-            predictedPositive += matrix[row][classInd];
-        }
+        double predictedPositive = predictedPositives(classInd);    //All predicted positives e.g. TP + FP
 
         if (predictedPositive == 0){
             precision = -1;                                         //Identifies indeterminate case
@@ -108,9 +550,9 @@ public class PredictionMatrix {
     //Calculates the recall with respect to a specific class
     //-1 indicates an indeterminate case
     public double calcRecall (int classInd){
-        double truePositive = matrix[classInd][classInd];           //Positive and correctly predicted
+        double truePositive = truePositives(classInd);              //Positive and correctly predicted
         double recall;
-        double classGenerated = Arrays.stream(matrix[classInd]).sum();   //All actual positives i.e. TP + FN
+        double classGenerated = actualPositives(classInd);          //All actual positives i.e. TP + FN
 
         if (classGenerated == 0){
             recall = -1;                                            //Identifies indeterminate case
@@ -124,21 +566,17 @@ public class PredictionMatrix {
     //-1 indicates an indeterminate case
     public double calcSpecificity (int classInd){
         double specificity;
-        double classGenerated = Arrays.stream(matrix[classInd]).sum();   //All actual positives i.e. TP + FN
+        double classGenerated = actualPositives(classInd);          //All actual positives i.e. TP + FN
+        double total = total();
 
-        if (classGenerated == numElements){
+        if (classGenerated == total){
             specificity = -1;                                       //Identifies indeterminate case
         } else {
-            double falsePositive = 0;                               //False positives
-
-            //Calculates the false positives
-            for (int row = 0; row < numClasses; row++){
-                falsePositive += matrix[row][classInd];
-            }
-            falsePositive -= matrix[classInd][classInd];
+            //False positives
+            double falsePositive = predictedPositives(classInd) - truePositives(classInd);
 
             //Calculates the true negatives
-            double trueNegative = numElements;
+            double trueNegative = total;
             trueNegative -= classGenerated;
             trueNegative -= falsePositive;
 
@@ -166,30 +604,82 @@ public class PredictionMatrix {
 
     //Calculates the accuracy
     public double calcAccuracy (){
-        double correct = 0;
-        double total = 0;
+        double correct = correctTotal();
+        double total = total();
+        return correct/total;
+    }
 
-        //If windowed, we know the total is just the # of window elements
-        if (!windowed) {
-            for (int i = 0; i < numClasses; i++) {
-                correct += matrix[i][i];
-                total += Arrays.stream(matrix[i]).sum();
-            }
-        } else {
-            for (int i = 0; i < numClasses; i++) {
-                correct += matrix[i][i];
-            }
-            total = window.size();
+    //Calculates precision, recall, specificity and fscore for every class plus the accuracy in one pass
+    //Results are written into reuse when it matches the number of classes, otherwise a new snapshot is made
+    public MetricsSnapshot snapshot (MetricsSnapshot reuse){
+        MetricsSnapshot snapshot = reuse;
+        if (snapshot == null || snapshot.getNumClasses() != numClasses){
+            snapshot = new MetricsSnapshot(numClasses);
         }
-        return correct/total;
+
+        for (int i = 0; i < numClasses; i++){
+            snapshot.fillClass(i, truePositives(i), predictedPositives(i), actualPositives(i), total());
+        }
+
+        snapshot.accuracy = calcAccuracy();
+        snapshot.numElements = numElements;
+        return snapshot;
     }
 
     /*These methods pertain to information retrieval from the matrix----------------------*/
     //Returns confusion matrix
+    //In fading mode this holds the undecayed counts of every result, use getFadedMatrix for the decayed weights
     public int[][] getMatrix(){
+        if (sparse != null){
+            throw new IllegalStateException("Matrix is stored sparsely, use getSparseMatrix or getCount");
+        }
         return matrix;
     }
 
+    //Returns the count of a single cell regardless of how the matrix is stored
+    public int getCount(int actualClass, int predictedClass){
+        return sparse != null ? sparse.get(actualClass, predictedClass) : matrix[actualClass][predictedClass];
+    }
+
+    //Returns the sparse confusion matrix, null unless there are more than SPARSE_THRESHOLD classes
+    public SparseConfusionMatrix getSparseMatrix(){
+        return sparse;
+    }
+
+    public boolean isSparse(){
+        return sparse != null;
+    }
+
+    //Writes the decayed weights (newest result has a weight of 1) into out and returns it
+    public double[][] getFadedMatrix(double[][] out){
+        if (!fading){
+            throw new IllegalStateException("Matrix is not in fading mode");
+        }
+        if (out == null || out.length != numClasses){
+            out = new double[numClasses][numClasses];
+        }
+
+        double scale = 1 / increment;
+        for (int i = 0; i < numClasses; i++){
+            for (int j = 0; j < numClasses; j++){
+                out[i][j] = weights[i][j] * scale;
+            }
+        }
+        return out;
+    }
+
+    public boolean isFading(){
+        return fading;
+    }
+
+    public double getFadingFactor(){
+        return fadingFactor;
+    }
+
+    public int getNumClasses(){
+        return numClasses;
+    }
+
     public void printMatrix(){
         System.out.print("\n     ");
         for (int i = 0; i < numClasses; i++){
@@ -202,10 +692,11 @@ public class PredictionMatrix {
         for (int row = 0; row < numClasses; row++){
             System.out.printf("\n%2d | ", row);
             for (int col = 0; col < numClasses; col++){
-                if (matrix[row][col] == 0) {
+                int count = getCount(row, col);
+                if (count == 0) {
                     System.out.print("    . ");
                 } else {
-                    System.out.printf(" %4d ", matrix[row][col]);
+                    System.out.printf(" %4d ", count);
                 }
             }
             System.out.print("\n");
@@ -0,0 +1,46 @@
+/**
+ * Keeps a uniform random sample of all the instances of each class seen since the last reset (reservoir sampling,
+ * "Random Sampling with a Reservoir", Vitter, 1985), so a rare class keeps examples from its whole history rather
+ * than only its latest burst
+ */
+
+package core;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class ReservoirPolicy implements RetentionPolicy {
+    private Random random;
+    private long[] seen = new long[0];      //Instances of each class offered since the last reset
+
+    public ReservoirPolicy(){
+        this(new Random());
+    }
+
+    public ReservoirPolicy(long seed){
+        this(new Random(seed));
+    }
+
+    private ReservoirPolicy(Random random){
+        this.random = random;
+    }
+
+    public int admit(int classInd, int size, int capacity){
+        if (classInd >= seen.length){
+            seen = Arrays.copyOf(seen, Math.max(classInd + 1, seen.length * 2));
+        }
+        long count = ++seen[classInd];
+
+        if (size < capacity){
+            return size;
+        }
+
+        //The nth instance is kept with probability capacity/n, replacing a random one
+        long draw = (long) (random.nextDouble() * count);
+        return draw < size ? (int) draw : -1;
+    }
+
+    public void reset(){
+        Arrays.fill(seen, 0);
+    }
+}
@@ -0,0 +1,17 @@
+/**
+ * Decides which instances an InstanceBuffer keeps for each class once more arrive than fit in a buffer
+ * Implementations should be O(1) per call since they are consulted for every instance added
+ */
+
+package core;
+
+public interface RetentionPolicy {
+
+    //Decides what happens to a new instance of a class, given how many instances its buffer holds and its capacity
+    //Returns -1 to discard the instance, a position between 0 (the oldest) and size - 1 to overwrite that instance,
+    //or size to add it as the newest (evicting the oldest if the buffer is full)
+    int admit(int classInd, int size, int capacity);
+
+    //Forgets any state kept about the instances seen, called when the buffers are emptied
+    void reset();
+}
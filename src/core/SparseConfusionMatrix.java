@@ -0,0 +1,190 @@
+/**
+ * Confusion matrix for large numbers of classes that only stores the non-zero cells
+ * Cells are kept in a primitive open-addressing (linear probing) map keyed by actual * numClasses + predicted, cells
+ * that drop back to zero are removed so iterating over the slots only ever visits non-zero cells
+ */
+
+package core;
+
+import java.util.Arrays;
+
+public class SparseConfusionMatrix {
+    private static final int EMPTY = -1;
+
+    private int numClasses;             //Number of different classes
+    private int[] keys;                 //actual * numClasses + predicted, EMPTY for unused slots
+    private int[] values;               //Count for each key
+    private int size;                   //Number of non-zero cells
+    private int mask;                   //keys.length - 1 (length is always a power of 2)
+    private int shift;                  //32 - log2(keys.length), hashes use the high bits of the product
+
+    public SparseConfusionMatrix(int numClasses){
+        this(numClasses, 64);
+    }
+
+    public SparseConfusionMatrix(int numClasses, int expectedCells){
+        if (numClasses < 1 || numClasses > 46340){         //Keys have to fit in an int
+            throw new IllegalArgumentException("Number of classes must be between 1 and 46340");
+        }
+        this.numClasses = numClasses;
+
+        int capacity = 16;
+        while (capacity < expectedCells * 2){
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity){
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+        shift = Integer.numberOfLeadingZeros(capacity) + 1;
+        size = 0;
+    }
+
+    private int slotOf(int key){
+        return (key * 0x9E3779B9) >>> shift;
+    }
+
+    //Returns the count of a cell
+    public int get(int actualClass, int predictedClass){
+        int key = actualClass * numClasses + predictedClass;
+        for (int slot = slotOf(key); keys[slot] != EMPTY; slot = (slot + 1) & mask){
+            if (keys[slot] == key){
+                return values[slot];
+            }
+        }
+        return 0;
+    }
+
+    //Adds delta to a cell and returns its new count, the cell is removed if the count drops to zero
+    public int add(int actualClass, int predictedClass, int delta){
+        int key = actualClass * numClasses + predictedClass;
+        int slot = slotOf(key);
+        while (keys[slot] != EMPTY){
+            if (keys[slot] == key){
+                int count = values[slot] + delta;
+                if (count == 0){
+                    removeSlot(slot);
+                } else {
+                    values[slot] = count;
+                }
+                return count;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (delta != 0){
+            keys[slot] = key;
+            values[slot] = delta;
+            size++;
+            if (size * 2 > keys.length){
+                grow();
+            }
+        }
+        return delta;
+    }
+
+    //Removes a slot and shifts back any following entries that would no longer be reachable
+    private void removeSlot(int slot){
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (keys[next] != EMPTY){
+            int home = slotOf(keys[next]);
+            //Moves the entry into the hole unless its home lies cyclically between the hole and where it is now
+            if (((next - home) & mask) >= ((next - hole) & mask)){
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = EMPTY;
+        values[hole] = 0;
+        size--;
+    }
+
+    private void grow(){
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++){
+            if (oldKeys[i] != EMPTY){
+                int slot = slotOf(oldKeys[i]);
+                while (keys[slot] != EMPTY){
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                size++;
+            }
+        }
+    }
+
+    //Removes every cell (keeps the current capacity)
+    public void clear(){
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    //Returns an independent copy
+    public SparseConfusionMatrix copy(){
+        SparseConfusionMatrix copy = new SparseConfusionMatrix(numClasses);
+        copy.keys = keys.clone();
+        copy.values = values.clone();
+        copy.mask = mask;
+        copy.shift = shift;
+        copy.size = size;
+        return copy;
+    }
+
+    //Makes this an exact copy of other, reusing this map's arrays unless other has grown larger
+    public void copyFrom(SparseConfusionMatrix other){
+        if (other.numClasses != numClasses){
+            throw new IllegalArgumentException("Number of classes does not match");
+        }
+        if (keys.length != other.keys.length){
+            keys = new int[other.keys.length];
+            values = new int[other.values.length];
+        }
+        System.arraycopy(other.keys, 0, keys, 0, keys.length);
+        System.arraycopy(other.values, 0, values, 0, values.length);
+        mask = other.mask;
+        shift = other.shift;
+        size = other.size;
+    }
+
+    /*These methods pertain to iterating over the non-zero cells----------------------*/
+    //Iterate with: for (slot = 0; slot < getCapacity(); slot++) if (isUsed(slot)) ... getActual/getPredicted/getValue
+    public int getCapacity(){
+        return keys.length;
+    }
+
+    public boolean isUsed(int slot){
+        return keys[slot] != EMPTY;
+    }
+
+    public int getActual(int slot){
+        return keys[slot] / numClasses;
+    }
+
+    public int getPredicted(int slot){
+        return keys[slot] % numClasses;
+    }
+
+    public int getValue(int slot){
+        return values[slot];
+    }
+
+    //Number of non-zero cells
+    public int size(){
+        return size;
+    }
+
+    public int getNumClasses(){
+        return numClasses;
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * Keeps a sample of each class that is biased towards recent instances, the chance of an instance still being in
+ * the buffer decays exponentially with the number of instances of its class that came after it (biased reservoir
+ * sampling, "On Biased Reservoir Sampling in the Presence of Stream Evolution", Aggarwal, 2006)
+ * New instances are always added while the buffer has room, so a rare class isn't starved before it has a sample.
+ * Once it is full an instance is admitted with probability decayRate * capacity (at most 1) and replaces a random one,
+ * after which the retained sample follows a decay of decayRate per instance of the class
+ */
+
+package core;
+
+import java.util.Random;
+
+public class TimeDecayedPolicy implements RetentionPolicy {
+    private Random random;
+    private double decayRate;               //Bias towards recent instances
+
+    public TimeDecayedPolicy(double decayRate){
+        this(decayRate, new Random());
+    }
+
+    public TimeDecayedPolicy(double decayRate, long seed){
+        this(decayRate, new Random(seed));
+    }
+
+    private TimeDecayedPolicy(double decayRate, Random random){
+        if (decayRate <= 0 || decayRate > 1){
+            throw new IllegalArgumentException("Decay rate must be between 0 and 1");
+        }
+        this.decayRate = decayRate;
+        this.random = random;
+    }
+
+    public int admit(int classInd, int size, int capacity){
+        if (size < capacity){
+            return size;
+        }
+        //A buffer smaller than 1/decayRate can't hold the whole decayed sample, so only a fraction is admitted
+        if (random.nextDouble() >= decayRate * capacity){
+            return -1;
+        }
+        return random.nextInt(size);
+    }
+
+    public void reset(){
+    }
+
+    public double getDecayRate(){
+        return decayRate;
+    }
+}
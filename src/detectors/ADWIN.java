@@ -0,0 +1,242 @@
+/**
+ * This class implements the ADWIN (ADaptive WINdowing) drift detector as described in "Learning from Time-Changing
+ * Data with Adaptive Windowing" (Bifet and Gavalda, 2007)
+ * The error rate is monitored over a window that grows while the stream is stable and is cut whenever two sub-windows
+ * have significantly different means. The window is stored as an exponential histogram (ADWIN2): level i holds up to
+ * maxBuckets + 1 buckets summarising 2^i results each, so memory and update cost are O(log W) for a window of W
+ */
+
+package detectors;
+
+import core.PredictionMatrix;
+
+import java.util.Arrays;
+
+public class ADWIN extends ErrorRateDetector {
+    private static final int MIN_WINDOW_LENGTH = 5;    //Minimum length of either sub-window when testing a cut
+
+    private double delta;               //Confidence of the cut test
+    private int maxBuckets;             //Buckets kept per level before the oldest two are merged
+    private int clock;                  //How often (in results) cuts are tested
+
+    //Exponential histogram, index 0 of a level is its oldest bucket and higher levels hold older results
+    private double[][] bucketTotals;    //Sum of the results in each bucket
+    private double[][] bucketVariances; //Sum of squared deviations from the bucket mean
+    private int[] bucketCounts;         //Number of buckets at each level
+    private int numLevels;              //Number of levels in use
+
+    private long width;                 //Number of results in the window
+    private double total;               //Sum of the results in the window
+    private double variance;            //Sum of squared deviations from the window mean
+    private long time;                  //Results seen, used to only test every clock results
+
+    //Constructor for pushing results with update, without a prediction matrix
+    public ADWIN(){
+        this((PredictionMatrix) null);
+    }
+
+    public ADWIN(PredictionMatrix predictionMatrix){
+        this(predictionMatrix, 0.002);                          //Default used by MOA
+    }
+
+    public ADWIN(PredictionMatrix predictionMatrix, double delta){
+        this(predictionMatrix, delta, 5, 32);
+    }
+
+    public ADWIN(PredictionMatrix predictionMatrix, double delta, int maxBuckets, int clock){
+        super(predictionMatrix, delta);
+        if (delta <= 0 || delta >= 1){
+            throw new IllegalArgumentException("ADWIN: delta must be between 0 and 1");
+        }
+        if (maxBuckets < 2 || clock < 1){
+            throw new IllegalArgumentException("ADWIN: Invalid bucket parameters passed");
+        }
+
+        this.delta = delta;
+        this.maxBuckets = maxBuckets;
+        this.clock = clock;
+
+        bucketTotals = new double[32][maxBuckets + 1];
+        bucketVariances = new double[32][maxBuckets + 1];
+        bucketCounts = new int[32];
+        resetADWIN();
+    }
+
+    //Resets class variables
+    private void resetADWIN(){
+        Arrays.fill(bucketCounts, 0);
+        numLevels = 0;
+        width = 0;
+        total = 0;
+        variance = 0;
+        time = 0;
+    }
+
+    //Mean error rate over the window
+    public double getEstimation(){
+        return width > 0 ? total / width : 0;
+    }
+
+    public long getWidth(){
+        return width;
+    }
+
+    /*These methods pertain to maintaining the exponential histogram----------------------*/
+    //Adds a result to the window and returns whether the window was cut
+    private boolean addElement(double value){
+        //Updates the window statistics incrementally
+        width++;
+        if (width > 1){
+            double mean = total / (width - 1);
+            variance += (width - 1) * (value - mean) * (value - mean) / width;
+        }
+        total += value;
+
+        //Inserts the result as the newest bucket of level 0
+        if (numLevels == 0){
+            numLevels = 1;
+        }
+        bucketTotals[0][bucketCounts[0]] = value;
+        bucketVariances[0][bucketCounts[0]] = 0;
+        bucketCounts[0]++;
+        compressBuckets();
+
+        time++;
+        return time % clock == 0 && width > MIN_WINDOW_LENGTH && detectCut();
+    }
+
+    //Merges the two oldest buckets of any level that has too many into one bucket on the level above
+    private void compressBuckets(){
+        for (int level = 0; level < numLevels && bucketCounts[level] > maxBuckets; level++){
+            if (level + 1 == bucketTotals.length){
+                growLevels();
+            }
+
+            double size = 1L << level;
+            double[] totals = bucketTotals[level];
+            double[] variances = bucketVariances[level];
+            double mean0 = totals[0] / size;
+            double mean1 = totals[1] / size;
+            double mergedTotal = totals[0] + totals[1];
+            double mergedVariance = variances[0] + variances[1] + size * size * (mean0 - mean1) * (mean0 - mean1)
+                    / (2 * size);
+
+            //Removes the two oldest buckets from this level
+            int remaining = bucketCounts[level] - 2;
+            System.arraycopy(totals, 2, totals, 0, remaining);
+            System.arraycopy(variances, 2, variances, 0, remaining);
+            bucketCounts[level] = remaining;
+
+            //And adds the merged bucket as the newest on the next level
+            int next = level + 1;
+            bucketTotals[next][bucketCounts[next]] = mergedTotal;
+            bucketVariances[next][bucketCounts[next]] = mergedVariance;
+            bucketCounts[next]++;
+            if (next == numLevels){
+                numLevels++;
+            }
+        }
+    }
+
+    //Only needed once the window passes about maxBuckets * 2^32 results
+    private void growLevels(){
+        int levels = bucketTotals.length * 2;
+        bucketTotals = Arrays.copyOf(bucketTotals, levels);
+        bucketVariances = Arrays.copyOf(bucketVariances, levels);
+        bucketCounts = Arrays.copyOf(bucketCounts, levels);
+        for (int i = levels / 2; i < levels; i++){
+            bucketTotals[i] = new double[maxBuckets + 1];
+            bucketVariances[i] = new double[maxBuckets + 1];
+        }
+    }
+
+    //Removes the oldest bucket from the window
+    private void deleteElement(){
+        int level = numLevels - 1;
+        double size = 1L << level;
+        double bucketTotal = bucketTotals[level][0];
+        double bucketVariance = bucketVariances[level][0];
+
+        width -= (long) size;
+        total -= bucketTotal;
+        double bucketMean = bucketTotal / size;
+        double windowMean = width > 0 ? total / width : 0;
+        variance -= bucketVariance + size * width * (bucketMean - windowMean) * (bucketMean - windowMean)
+                / (size + width);
+
+        int remaining = bucketCounts[level] - 1;
+        System.arraycopy(bucketTotals[level], 1, bucketTotals[level], 0, remaining);
+        System.arraycopy(bucketVariances[level], 1, bucketVariances[level], 0, remaining);
+        bucketCounts[level] = remaining;
+        if (remaining == 0){
+            numLevels--;
+        }
+    }
+
+    //Tests every split of the window into an older and a newer sub-window, dropping the oldest bucket while any
+    //split has significantly different means. Returns whether the window was cut
+    private boolean detectCut(){
+        boolean cut = false;
+        boolean reduced = true;
+
+        while (reduced){
+            reduced = false;
+            double n0 = 0;
+            double n1 = width;
+            double u0 = 0;
+            double u1 = total;
+
+            scan:
+            for (int level = numLevels - 1; level >= 0; level--){
+                double size = 1L << level;
+                for (int i = 0; i < bucketCounts[level]; i++){
+                    n0 += size;
+                    n1 -= size;
+                    u0 += bucketTotals[level][i];
+                    u1 -= bucketTotals[level][i];
+
+                    if (n1 <= MIN_WINDOW_LENGTH){
+                        break scan;
+                    }
+
+                    if (n0 > MIN_WINDOW_LENGTH + 1 && n1 > MIN_WINDOW_LENGTH + 1 &&
+                            isCut(n0, n1, u0 / n0 - u1 / n1)){
+                        //Drops the oldest bucket and tests the shorter window again
+                        deleteElement();
+                        reduced = true;
+                        cut = true;
+                        break scan;
+                    }
+                }
+            }
+        }
+        return cut;
+    }
+
+    //Hoeffding style bound on the difference of the sub-window means (with the variance correction of ADWIN2)
+    private boolean isCut(double n0, double n1, double difference){
+        double n = width;
+        double dd = Math.log(2 * Math.log(n) / delta);
+        double v = variance / width;
+        double m = (1 / (n0 - MIN_WINDOW_LENGTH + 1)) + (1 / (n1 - MIN_WINDOW_LENGTH + 1));
+        double epsilon = Math.sqrt(2 * m * v * dd) + 2.0 / 3 * dd * m;
+        return Math.abs(difference) > epsilon;
+    }
+
+    public int update(boolean correct){
+        //Per parent method:
+        //0 indicates drift
+        //1 indicates stable
+        //2 indicates warn
+        int drift = 1;
+        double error = correct ? 0 : 1;
+
+        double before = getEstimation();
+        if (addElement(error) && getEstimation() > before){
+            //Only an increase in the error rate counts as drift, a cut after the error drops just shrinks the window
+            drift = 0;
+        }
+
+        return drift;
+    }
+}
@@ -8,10 +8,13 @@ import core.PredictionMatrix;
 
 //Change detector contract
 //The original MOA class was way too bulky
+//Results can either be pulled from the prediction matrix with testDrift or pushed straight to the detector with
+//update/updateBlock, in which case the detector doesn't need a prediction matrix at all (it can be null)
 public abstract class AbstractChangeDetectorNew {
     protected PredictionMatrix predictionMatrix;
     protected double warnThreshold;
     protected double alarmThreshold;
+    protected int blockDrift = 1;       //Result of the last updateBlock
 
     public AbstractChangeDetectorNew(PredictionMatrix predictionMatrix, double alarmThreshold){
         this.predictionMatrix = predictionMatrix;
@@ -27,6 +30,44 @@ public abstract class AbstractChangeDetectorNew {
     //Please use 0 to indicate drift
     //1 to indicate stable
     //2 to indicate warn
-    public abstract int testDrift();
+    //By default tests the last prediction recorded in the matrix, detectors that look at the whole matrix override this
+    public int testDrift(){
+        int[] lastPrediction = predictionMatrix.getLastPrediction();
+        return update(lastPrediction[0], lastPrediction[1]);
+    }
+
+    //Relative cost of a testDrift call, detectors that do a constant amount of work per test cost 1
+    public double getTestCost(){
+        return 1;
+    }
+
+    //Whether testDrift has to be called after every prediction, true for detectors that only look at the last one
+    //(they would miss results otherwise). Tests of detectors that look at the whole matrix can be spaced out
+    public boolean needsEveryTest(){
+        return true;
+    }
 
+    //Pushes a single test result to the detector, same return values as testDrift
+    //Detectors that only look at the error rate extend ErrorRateDetector, which implements this with update(boolean)
+    public abstract int update(int actualClass, int predictedClass);
+
+    //Pushes the results from index from (inclusive) to index to (exclusive) in order
+    //Stops at and returns the index of the first result that signals drift or warn (getBlockDrift says which), or
+    //returns -1 if every result was stable. Call again from the returned index + 1 to carry on with the block
+    public int updateBlock(int[] actualClasses, int[] predictedClasses, int from, int to){
+        for (int i = from; i < to; i++){
+            int drift = update(actualClasses[i], predictedClasses[i]);
+            if (drift != 1){
+                blockDrift = drift;
+                return i;
+            }
+        }
+        blockDrift = 1;
+        return -1;
+    }
+
+    //Result (0, 1 or 2) of the last call to updateBlock
+    public int getBlockDrift(){
+        return blockDrift;
+    }
 }
@@ -0,0 +1,83 @@
+/**
+ * Fixed width sliding window of bits packed into a long[] ring, with a running count of the 1 bits
+ * Used by detectors that only need to remember whether each prediction in a window was correct
+ */
+
+package detectors;
+
+class BitWindow {
+    private long[] bits;                //Ring of bits, 64 per long
+    private int capacity;               //Maximum number of bits in the window
+    private int head;                   //Position of the oldest bit
+    private int count;                  //Number of bits in the window
+    private int ones;                   //Number of 1 bits in the window
+
+    BitWindow(int capacity){
+        if (capacity < 1){
+            throw new IllegalArgumentException("Window size must be > 0");
+        }
+        this.capacity = capacity;
+        bits = new long[(capacity + 63) >>> 6];
+    }
+
+    //Adds a bit as the newest in the window
+    //Returns the evicted (oldest) bit as 0 or 1 if the window was full, otherwise -1
+    int push(boolean bit){
+        int evicted = -1;
+        int position;
+
+        if (count == capacity){
+            position = head;
+            evicted = (int) (bits[position >>> 6] >>> (position & 63)) & 1;
+            ones -= evicted;
+            head = head + 1 == capacity ? 0 : head + 1;
+        } else {
+            position = head + count;
+            if (position >= capacity){
+                position -= capacity;
+            }
+            count++;
+        }
+
+        long mask = 1L << (position & 63);
+        if (bit){
+            bits[position >>> 6] |= mask;
+            ones++;
+        } else {
+            bits[position >>> 6] &= ~mask;
+        }
+        return evicted;
+    }
+
+    //Returns the bit i places after the oldest as 0 or 1
+    int get(int i){
+        int position = head + i;
+        if (position >= capacity){
+            position -= capacity;
+        }
+        return (int) (bits[position >>> 6] >>> (position & 63)) & 1;
+    }
+
+    //Empties the window, stale bits are simply overwritten by later pushes
+    void clear(){
+        head = 0;
+        count = 0;
+        ones = 0;
+    }
+
+    int size(){
+        return count;
+    }
+
+    int ones(){
+        return ones;
+    }
+
+    int capacity(){
+        return capacity;
+    }
+
+    boolean isFull(){
+        return count == capacity;
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * This class implements a two-sided CUSUM test ("Continuous Inspection Schemes", Page, 1954) on the error rate
+ * Positive and negative deviations of the errors from their running mean are accumulated separately (and never drop
+ * below 0), drift is signalled when either sum passes lambda (the alarm threshold), i.e. when the error rate moves
+ * up or down
+ */
+
+package detectors;
+
+import core.PredictionMatrix;
+
+public class CUSUM extends ErrorRateDetector {
+    private double delta;               //Magnitude of change that is tolerated
+    private int minInstances;           //Results needed before testing
+    private long n;                     //Number of results
+    private double mean;                //Running mean of the errors
+    private double upperSum;            //Accumulated increases in the error rate
+    private double lowerSum;            //Accumulated decreases in the error rate
+
+    //Constructor for pushing results with update, without a prediction matrix
+    public CUSUM(){
+        this((PredictionMatrix) null);
+    }
+
+    public CUSUM(PredictionMatrix predictionMatrix){
+        this(predictionMatrix, 50, 0.005, 30);                 //Defaults used by MOA
+    }
+
+    public CUSUM(PredictionMatrix predictionMatrix, double lambda, double delta, int minInstances){
+        super(predictionMatrix, lambda);
+        this.delta = delta;
+        this.minInstances = minInstances;
+        resetCUSUM();
+    }
+
+    //Resets class variables
+    private void resetCUSUM(){
+        n = 0;
+        mean = 0;
+        upperSum = 0;
+        lowerSum = 0;
+    }
+
+    public int update(boolean correct){
+        //Per parent method:
+        //0 indicates drift
+        //1 indicates stable
+        //2 indicates warn
+        int drift = 1;
+        double error = correct ? 0 : 1;
+
+        n++;
+        mean += (error - mean) / n;
+        upperSum = Math.max(0, upperSum + error - mean - delta);
+        lowerSum = Math.max(0, lowerSum - (error - mean) - delta);
+
+        if (n >= minInstances && (upperSum > alarmThreshold || lowerSum > alarmThreshold)){
+            drift = 0;
+            resetCUSUM();
+        }
+
+        return drift;
+    }
+}
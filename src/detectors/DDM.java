@@ -0,0 +1,76 @@
+/**
+ * This class implements the DDM drift detector as described in "Learning with Drift Detection" (Gama et. al, 2004)
+ * The error rate and its standard deviation are tracked along with the point where their sum was lowest, warn and
+ * drift are signalled when the sum rises warnThreshold and alarmThreshold standard deviations above that point
+ */
+
+package detectors;
+
+import core.PredictionMatrix;
+
+public class DDM extends ErrorRateDetector {
+    private int minInstances;           //Results needed before testing
+    private long n;                     //Number of results
+    private double p;                   //Error rate
+    private double s;                   //Std of the error rate
+    private double pMin;                //Error rate where p + s was lowest
+    private double sMin;                //Std where p + s was lowest
+
+    //Constructor for pushing results with update, without a prediction matrix
+    public DDM(){
+        this((PredictionMatrix) null);
+    }
+
+    public DDM(PredictionMatrix predictionMatrix){
+        //3 and 2 standard deviations for alarm and warn and 30 results before testing as advised in Gama 2004
+        this(predictionMatrix, 3, 2, 30);
+    }
+
+    public DDM(PredictionMatrix predictionMatrix, double alarmThreshold, double warnThreshold, int minInstances){
+        super(predictionMatrix, alarmThreshold, warnThreshold);
+        if (warnThreshold > alarmThreshold){
+            throw new IllegalArgumentException("DDM: warn threshold must be <= alarm threshold");
+        }
+        this.minInstances = minInstances;
+        resetDDM();
+    }
+
+    //Resets class variables
+    private void resetDDM(){
+        n = 0;
+        p = 0;
+        s = 0;
+        pMin = Double.MAX_VALUE;
+        sMin = Double.MAX_VALUE;
+    }
+
+    public int update(boolean correct){
+        //Per parent method:
+        //0 indicates drift
+        //1 indicates stable
+        //2 indicates warn
+        int drift = 1;
+        double error = correct ? 0 : 1;
+
+        n++;
+        p += (error - p) / n;
+        s = Math.sqrt(p * (1 - p) / n);
+
+        //While no error has been seen s = 0, and arming the test then would make the first error look like a drift
+        if (n >= minInstances && s > 0){
+            if (p + s <= pMin + sMin){
+                pMin = p;
+                sMin = s;
+            }
+
+            if (p + s > pMin + alarmThreshold * sMin){
+                drift = 0;
+                resetDDM();
+            } else if (p + s > pMin + warnThreshold * sMin){
+                drift = 2;
+            }
+        }
+
+        return drift;
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * Decides when a drift detector is tested instead of testing it every fixed baseInterval instances
+ * Tests only ever fall on the fixed schedule, so a detector that compares against the matrix from its previous test
+ * (PerfSim2) always compares whole, separate windows. While the detector says the stream is stable the gap between
+ * tests doubles up to maxInterval, a warn or a drift brings it back to the shortest gap. The shortest gap is the
+ * smallest multiple of baseInterval at which testing costs at most costBudget per instance on average
+ * Detectors that need to see every prediction (see AbstractChangeDetectorNew.needsEveryTest) are always tested
+ * Keeps count of the tests run and skipped compared to the fixed schedule and, given the points where the concept is
+ * known to change, the delay until the change is detected, so the CPU saved can be weighed against detection delay
+ */
+
+package detectors;
+
+public class DriftTestScheduler {
+    private AbstractChangeDetectorNew detector;
+    private int baseInterval;           //Gap of the fixed schedule, every gap is a multiple of it
+    private int minInterval;            //Gap between tests after a drift or warn (scaled by the test cost)
+    private int maxInterval;            //Longest gap between tests
+    private double testCost;            //Cost of a test, from the detector
+    private boolean everyInstance;      //Whether the detector has to be tested after every instance
+
+    private int interval;               //Current gap between tests
+    private int sinceTest;              //Instances since the last test
+
+    private long instances;             //Instances seen
+    private long tests;                 //Tests run
+    private long changeInstance = -1;   //Instance at which the latest unnoticed concept change happened, -1 if none
+    private long detections;            //Concept changes followed by a drift verdict
+    private long missed;                //Concept changes with no drift verdict before the next one
+    private long totalDelay;            //Sum of the delays of the detections
+
+    public DriftTestScheduler(AbstractChangeDetectorNew detector, int baseInterval, int maxInterval){
+        this(detector, baseInterval, maxInterval, 1);
+    }
+
+    //maxInterval is rounded down to a multiple of baseInterval
+    public DriftTestScheduler(AbstractChangeDetectorNew detector, int baseInterval, int maxInterval,
+                              double costBudget){
+        if (baseInterval < 1){
+            throw new IllegalArgumentException("Base interval must be > 0");
+        }
+        if (maxInterval < baseInterval){
+            throw new IllegalArgumentException("Maximum interval must be >= base interval");
+        }
+        if (costBudget <= 0){
+            throw new IllegalArgumentException("Cost budget must be > 0");
+        }
+        this.detector = detector;
+        this.baseInterval = baseInterval;
+        this.maxInterval = maxInterval / baseInterval * baseInterval;
+        this.testCost = detector.getTestCost();
+        this.everyInstance = detector.needsEveryTest();
+        int steps = (int) Math.ceil(testCost / costBudget / baseInterval);
+        this.minInterval = Math.min(this.maxInterval, Math.max(1, steps) * baseInterval);
+        this.interval = everyInstance ? 1 : minInterval;
+    }
+
+    //Call once per instance, returns whether the detector should be tested now
+    public boolean isTestDue(){
+        instances++;
+        return ++sinceTest >= interval;
+    }
+
+    //Tests the detector and adjusts the gap to the next test, same return values as testDrift
+    public int testDrift(){
+        int drift = detector.testDrift();
+        tests++;
+        sinceTest = 0;
+
+        if (drift == 0 && changeInstance >= 0){
+            detections++;
+            totalDelay += instances - changeInstance;
+            changeInstance = -1;
+        }
+
+        if (!everyInstance){
+            if (drift == 1){
+                interval = Math.min(maxInterval, interval * 2);
+            } else {
+                interval = minInterval;
+            }
+        }
+        return drift;
+    }
+
+    //Tells the scheduler that the concept changes at the current instance (only for reporting detection delay)
+    public void noteConceptChange(){
+        if (changeInstance >= 0){
+            missed++;
+        }
+        changeInstance = instances;
+    }
+
+    /*These methods pertain to reporting----------------------*/
+    public long getInstances(){
+        return instances;
+    }
+
+    public long getTests(){
+        return tests;
+    }
+
+    //Tests the fixed schedule would have run (every instance for detectors that need every test)
+    public long getScheduledTests(){
+        return everyInstance ? instances : instances / baseInterval;
+    }
+
+    //Tests skipped compared to the fixed schedule
+    public long getTestsSkipped(){
+        return getScheduledTests() - tests;
+    }
+
+    //Test cost saved compared to the fixed schedule
+    public double getCostSaved(){
+        return getTestsSkipped() * testCost;
+    }
+
+    public long getDetections(){
+        return detections;
+    }
+
+    public long getMissed(){
+        return missed;
+    }
+
+    //Mean number of instances between a concept change and the drift verdict that followed it
+    public double getMeanDelay(){
+        return detections > 0 ? (double) totalDelay / detections : Double.NaN;
+    }
+
+    public int getCurrentInterval(){
+        return interval;
+    }
+
+    public String getSummary(){
+        return String.format("Tests: %d of %d scheduled (%d skipped, cost saved %.0f)\tDetections: %d" +
+                "\tMissed: %d\tMean delay: %.1f", tests, getScheduledTests(), getTestsSkipped(), getCostSaved(),
+                detections, missed, getMeanDelay());
+    }
+}
@@ -9,16 +9,21 @@ package detectors;
 import core.PredictionMatrix;
 
 
-public class EDDM extends AbstractChangeDetectorNew{
+public class EDDM extends ErrorRateDetector{
     private double pPrime;                          //Average distance between errors
     private double sPrime;                          //Std of distance between errors
-    private double varPrime;                        //Var of distance between errors
+    private double m2;                              //Sum of squared deviations of the distances from their mean
     private double pMax;                            //Max mean encountered
     private double sMax;                            //Max std encountered
-    private int nErrors;                            //Number of errors
-    private int lastInterval;                       //Interval between errors
+    private long nErrors;                           //Number of errors
+    private long lastInterval;                      //Interval between errors
 
 
+    //Constructor for pushing results with update, without a prediction matrix
+    public EDDM (){
+        this((PredictionMatrix) null);
+    }
+
     public EDDM (PredictionMatrix predictionMatrix){
         //0.90 and 0.95 are the default values for alarm and warn as advised in BG 2006
         this(predictionMatrix, 0.90, 0.95);
@@ -42,67 +47,134 @@ public class EDDM extends AbstractChangeDetectorNew{
         sMax = 0;
         pPrime = 0;
         sPrime = 0;
-        varPrime = 0;
+        m2 = 0;
         lastInterval = 0;
     }
 
-    //Incrementally updates the running variance, mean and std
-    private void updateVarPS (int n) {
-        double oldP = pPrime;
+    //Incrementally updates the running mean, variance and std (Welford's method)
+    private void updateVarPS (long n) {
+        double delta = n - pPrime;
 
         //New average
-        pPrime = oldP + (n - oldP)/nErrors;
+        pPrime += delta / nErrors;
 
-        //New variance
-        if (nErrors >= 2) {                     //(Can't calculate variance with less than 2 numbers)
-            varPrime = (((nErrors - 2) / (nErrors - 1)) * varPrime) + ((1 / nErrors) * Math.pow((pPrime - oldP), 2));
-        }
+        //New sum of squared deviations, the sample variance needs at least 2 numbers
+        m2 += delta * (n - pPrime);
 
         //New standard deviation
-        sPrime = Math.sqrt(varPrime);
+        sPrime = nErrors >= 2 ? Math.sqrt(m2 / (nErrors - 1)) : 0;
+    }
+
+    //Combines the error distance statistics of another EDDM (e.g. one run on another shard of the stream) into this one
+    //Means and variances are pooled exactly, the maximum is taken from whichever detector has the higher level
+    public void merge (EDDM other){
+        if (other.nErrors == 0){
+            return;
+        }
+        long n = nErrors + other.nErrors;
+
+        double delta = other.pPrime - pPrime;
+        pPrime += delta * other.nErrors / n;
+        m2 += other.m2 + delta * delta * ((double) nErrors * other.nErrors / n);
+        nErrors = n;
+        sPrime = n >= 2 ? Math.sqrt(m2 / (n - 1)) : 0;
+
+        if ((other.pMax + 2 * other.sMax) > (pMax + 2 * sMax)){
+            pMax = other.pMax;
+            sMax = other.sMax;
+        }
+    }
+
+    public long getNumErrors (){
+        return nErrors;
+    }
+
+    public double getMeanDistance (){
+        return pPrime;
+    }
+
+    public double getStdDistance (){
+        return sPrime;
     }
 
     private double calcDriftLevel () {
         return (pPrime + 2 * sPrime)/(pMax + 2 * sMax);
     }
 
-    public int testDrift (){
-        int[] lastPrediction = predictionMatrix.getLastPrediction();
+    public int update (boolean correct){
+        if (correct){
+            lastInterval++;
+            return 1;
+        }
+        return addError();
+    }
+
+    /*These methods process runs of results in bulk----------------------*/
+    //Adds a run of n correct predictions in O(1), they can't cause drift on their own
+    public void addCorrectRun (long n){
+        if (n < 0){
+            throw new IllegalArgumentException("EDDM: Run length must be >= 0");
+        }
+        lastInterval += n;
+    }
+
+    //Adds an error that came interval correct predictions after the previous one, returns the same as testDrift
+    public int addErrorInterval (long interval){
+        addCorrectRun(interval);
+        return addError();
+    }
+
+    //Only the errors have to be visited, every run of correct predictions between them is added at once
+    public int updateBlock (int[] actualClasses, int[] predictedClasses, int from, int to){
+        int runStart = from;
+        for (int i = from; i < to; i++){
+            if (actualClasses[i] != predictedClasses[i]){
+                lastInterval += i - runStart;
+                runStart = i + 1;
+
+                int drift = addError();
+                if (drift != 1){
+                    blockDrift = drift;
+                    return i;
+                }
+            }
+        }
+        lastInterval += to - runStart;
+        blockDrift = 1;
+        return -1;
+    }
+
+    //Records an error at the end of the current interval and tests for drift
+    private int addError (){
         //Per parent method:
         //0 indicates drift
         //1 indicates stable
         //2 indicates warn
         int drift = 1;
 
+        nErrors++;
+        updateVarPS(lastInterval);
+        lastInterval = 0;
 
-        if (lastPrediction[0] != lastPrediction[1]){
-            nErrors++;
-            updateVarPS(lastInterval);
-            lastInterval = 0;
+        //The value of pMax + 2 * sMax corresponds with the point where the distribution of distances between
+        // errors is maximum
+        if ((pPrime + 2 * sPrime) > (pMax + 2 * sMax)) {
+            pMax = pPrime;
+            sMax = sPrime;
+        }
 
-            //The value of pMax + 2 * sMax corresponds with the point where the distribution of distances between
-            // errors is maximum
-            if ((pPrime + 2 * sPrime) > (pMax + 2 * sMax)) {
-                pMax = pPrime;
-                sMax = sPrime;
-            }
+        //Only considers drift after 30 errors have occurred per BG 2006
+        if (nErrors >= 30){
+            double driftLevel = calcDriftLevel();
 
-            //Only considers drift after 30 errors have occurred per BG 2006
-            if (nErrors >= 30){
-                double driftLevel = calcDriftLevel();
-
-                if (driftLevel < warnThreshold){
-                    if (driftLevel < alarmThreshold){
-                        drift = 0;
-                        resetEDDM();
-                    } else {
-                        drift = 2;
-                    }
+            if (driftLevel < warnThreshold){
+                if (driftLevel < alarmThreshold){
+                    drift = 0;
+                    resetEDDM();
+                } else {
+                    drift = 2;
                 }
             }
-
-        } else {
-            lastInterval++;
         }
 
         return drift;
@@ -0,0 +1,26 @@
+/**
+ * Base of the detectors that only look at whether each prediction was correct (the error rate), e.g. DDM, EDDM, ADWIN
+ * A pushed result is turned into correct/incorrect and passed on to update(boolean)
+ */
+
+package detectors;
+
+import core.PredictionMatrix;
+
+public abstract class ErrorRateDetector extends AbstractChangeDetectorNew {
+
+    public ErrorRateDetector(PredictionMatrix predictionMatrix, double alarmThreshold){
+        super(predictionMatrix, alarmThreshold);
+    }
+
+    public ErrorRateDetector(PredictionMatrix predictionMatrix, double alarmThreshold, double warnThreshold){
+        super(predictionMatrix, alarmThreshold, warnThreshold);
+    }
+
+    public int update(int actualClass, int predictedClass){
+        return update(actualClass == predictedClass);
+    }
+
+    //Pushes whether a single prediction was correct, same return values as testDrift
+    public abstract int update(boolean correct);
+}
@@ -4,23 +4,25 @@
 
 package detectors;
 
-import java.util.LinkedList;
-import java.util.Queue;
 import core.PredictionMatrix;
 
 //This class implements the FHDDM drift detector as described in "Fast Hoeffding Drift Detection Method for
 // Evolving Data Streams" (Pesaranghader and Viktor, 2016)
 
-public class FHDDM extends AbstractChangeDetectorNew{
+public class FHDDM extends ErrorRateDetector{
 
     private int windowSize;             //Maximum sliding window width
-    private Queue<Integer> window;      //Test results for all samples in the window
+    private BitWindow window;           //Test results for all samples in the window (1 bit each, 1 = correct)
 
     private double p1;                  //Probability of correct prediction in window
     private double p1max;               //Max probability of correct prediction over time
-    private double windowSum;
 
 
+    //Constructor for pushing results with update, without a prediction matrix
+    public FHDDM(){
+        this((PredictionMatrix) null);
+    }
+
     public FHDDM(PredictionMatrix predictionMatrix){
         this(predictionMatrix, 0.0000001, 200);                 //Values used in P&V 2016
     }
@@ -28,20 +30,23 @@ public class FHDDM extends AbstractChangeDetectorNew{
     public FHDDM(PredictionMatrix predictionMatrix, double delta, int windowSize){
         super(predictionMatrix, Math.sqrt(Math.log(1/delta) / (2*windowSize)));
         this.windowSize = windowSize;
+        this.window = new BitWindow(windowSize);
         resetFHDDM();
     }
 
     //Resets class variables
     private void resetFHDDM(){
-        window = new LinkedList<>();
-        windowSum = 0;
+        window.clear();
         p1max = 0;
     }
 
     //windowSize setter
+    //The window is reallocated so the test results collected so far are discarded
     public void setWindowSize(int size) {
         if (size > 1) {
             windowSize = size;
+            window = new BitWindow(size);
+            resetFHDDM();
         } else {
             throw new IllegalArgumentException("FHDDM: Window size must be > 1");
         }
@@ -55,8 +60,33 @@ public class FHDDM extends AbstractChangeDetectorNew{
         }
     }
 
-    public int testDrift(){
-        int[] lastPrediction = predictionMatrix.getLastPrediction();
+    //Number of correct predictions in the window
+    public int getWindowCorrect(){
+        return window.ones();
+    }
+
+    //Number of predictions in the window
+    public int getWindowCount(){
+        return window.size();
+    }
+
+    //Highest probability of correct prediction seen since the last drift
+    public double getMaxProbability(){
+        return p1max;
+    }
+
+    //Pools the window counts of detectors run on shards of one stream into a single probability of correct prediction
+    public static double calcPooledProbability(FHDDM[] shards){
+        double correct = 0;
+        double count = 0;
+        for (int i = 0; i < shards.length; i++){
+            correct += shards[i].getWindowCorrect();
+            count += shards[i].getWindowCount();
+        }
+        return correct/count;
+    }
+
+    public int update(boolean correct){
         //Per parent method:
         //0 indicates drift
         //1 indicates stable
@@ -64,22 +94,16 @@ public class FHDDM extends AbstractChangeDetectorNew{
         int drift = 1;
         int match =  1;         //0 if prediction does not match label, 1 otherwise
 
-        if (lastPrediction[0] != lastPrediction[1]){
+        if (!correct){
             match = 0;
-            window.add(0);
-        } else {
-            window.add(1);
         }
 
-        if (window.size() <= windowSize){
-            //Incremental average update
-            windowSum += match;
-        } else {
-            Integer removed = window.remove();
+        //The running count of correct predictions is kept up to date by the window
+        int removed = window.push(match == 1);
+        if (removed >= 0){
             if (removed != match){
                 if (match == 0){
-                    windowSum--;
-                    p1 = windowSum/windowSize;
+                    p1 = (double) window.ones()/windowSize;
 
                     //Detects drift by Hoeffding bound
                     if (p1max - p1 >= alarmThreshold){
@@ -87,8 +111,7 @@ public class FHDDM extends AbstractChangeDetectorNew{
                         resetFHDDM();
                     }
                 } else {
-                    windowSum++;
-                    p1 = windowSum/windowSize;
+                    p1 = (double) window.ones()/windowSize;
 
                     if (p1 > p1max){
                         p1max = p1;
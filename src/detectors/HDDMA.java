@@ -0,0 +1,86 @@
+/**
+ * This class implements the HDDM-A drift detector as described in "Online and Non-Parametric Drift Detection Methods
+ * Based on Hoeffding's Bounds" (Frias-Blanco et. al, 2015)
+ * The mean error rate since the last drift is compared to the mean up to the cut point where it was lowest (plus its
+ * Hoeffding bound), using the warn and alarm thresholds as confidence levels of that comparison
+ */
+
+package detectors;
+
+import core.PredictionMatrix;
+
+public class HDDMA extends ErrorRateDetector {
+    private long n;                     //Number of results
+    private long errors;                //Number of errors
+    private long nCut;                  //Number of results up to the cut point
+    private long errorsCut;             //Number of errors up to the cut point
+
+    //Constructor for pushing results with update, without a prediction matrix
+    public HDDMA(){
+        this((PredictionMatrix) null);
+    }
+
+    public HDDMA(PredictionMatrix predictionMatrix){
+        this(predictionMatrix, 0.001, 0.005);                  //Values used in Frias-Blanco 2015
+    }
+
+    public HDDMA(PredictionMatrix predictionMatrix, double alarmThreshold, double warnThreshold){
+        super(predictionMatrix, alarmThreshold, warnThreshold);
+        if (alarmThreshold <= 0 || alarmThreshold >= 1 || warnThreshold <= 0 || warnThreshold >= 1){
+            throw new IllegalArgumentException("HDDM-A: confidence levels must be between 0 and 1");
+        }
+        resetHDDMA();
+    }
+
+    //Resets class variables
+    private void resetHDDMA(){
+        n = 0;
+        errors = 0;
+        nCut = 0;
+        errorsCut = 0;
+    }
+
+    //Hoeffding bound of a mean over count results
+    private double calcBound(double count, double confidence){
+        return Math.sqrt(Math.log(1 / confidence) / (2 * count));
+    }
+
+    //Tests whether the mean since the cut point has increased significantly compared to the mean up to it
+    private boolean isMeanIncreased(double confidence){
+        if (nCut == n){
+            return false;
+        }
+        double m = ((double) (n - nCut) / nCut) * (1.0 / n);
+        double bound = Math.sqrt(m / 2 * Math.log(2 / confidence));
+        return (double) errors / n - (double) errorsCut / nCut >= bound;
+    }
+
+    public int update(boolean correct){
+        //Per parent method:
+        //0 indicates drift
+        //1 indicates stable
+        //2 indicates warn
+        int drift = 1;
+
+        n++;
+        if (!correct){
+            errors++;
+        }
+
+        //Moves the cut point to wherever the mean plus its bound is lowest
+        if (nCut == 0 || (double) errors / n + calcBound(n, alarmThreshold) <=
+                (double) errorsCut / nCut + calcBound(nCut, alarmThreshold)){
+            nCut = n;
+            errorsCut = errors;
+        }
+
+        if (isMeanIncreased(alarmThreshold)){
+            drift = 0;
+            resetHDDMA();
+        } else if (isMeanIncreased(warnThreshold)){
+            drift = 2;
+        }
+
+        return drift;
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * This class is the base of the McDiarmid drift detectors (MDDM-A, MDDM-G and MDDM-E) as described in "McDiarmid
+ * Drift Detection Methods for Evolving Data Streams" (Pesaranghader et. al, 2018)
+ * Like FHDDM it slides a window over the prediction results, but newer results are weighted more heavily and the
+ * weighted mean is compared to its maximum using McDiarmid's inequality
+ * Subclasses define the weighting and keep the weighted sum up to date in O(1) as the window slides
+ */
+
+package detectors;
+
+import core.PredictionMatrix;
+
+public abstract class MDDM extends ErrorRateDetector {
+    protected int windowSize;           //Sliding window width
+    private double delta;               //Allowed probability of a false alarm
+    private BitWindow window;           //Test results for all samples in the window (1 bit each, 1 = correct)
+    private double weightTotal;         //Sum of all the weights in a full window
+
+    private double weightedMean;        //Weighted probability of correct prediction in the window
+    private double maxMean;             //Max weighted probability of correct prediction over time
+
+    protected MDDM(PredictionMatrix predictionMatrix, int windowSize, double delta){
+        super(predictionMatrix, 0);
+        if (windowSize < 2){
+            throw new IllegalArgumentException("MDDM: Window size must be > 1");
+        }
+        if (delta <= 0 || delta >= 1){
+            throw new IllegalArgumentException("MDDM: delta must be between 0 and 1");
+        }
+        this.windowSize = windowSize;
+        this.delta = delta;
+        this.window = new BitWindow(windowSize);
+    }
+
+    //Weight of the result at a position in a full window (0 is the oldest, windowSize - 1 the newest)
+    protected abstract double weight(int position);
+
+    //Adds a result at a position while the window is still filling up
+    protected abstract void addFilling(int position, int match);
+
+    //Slides the full window along by one: the oldest result leaves and a new one arrives as the newest
+    //ones is the number of correct results in the window after the slide
+    protected abstract void slide(int removed, int added, int ones);
+
+    //Returns the weighted sum of the results in a full window
+    protected abstract double weightedSum();
+
+    //Clears the running sums
+    protected abstract void resetSums();
+
+    //Calculates the McDiarmid bound for the weighting, subclasses call this once their parameters are set
+    //O(windowSize) but only happens on construction
+    protected void initBound(){
+        double total = 0;
+        double squares = 0;
+        for (int i = 0; i < windowSize; i++){
+            double w = weight(i);
+            total += w;
+            squares += w * w;
+        }
+        weightTotal = total;
+
+        //sum of (w_i / sum of w)^2 times ln(1/delta) / 2
+        super.alarmThreshold = Math.sqrt((squares / (total * total)) * Math.log(1/delta) / 2);
+        resetMDDM();
+    }
+
+    //Resets class variables
+    private void resetMDDM(){
+        window.clear();
+        resetSums();
+        weightedMean = 0;
+        maxMean = 0;
+    }
+
+    public double getWeightedMean(){
+        return weightedMean;
+    }
+
+    public int update(boolean correct){
+        //Per parent method:
+        //0 indicates drift
+        //1 indicates stable
+        //2 indicates warn
+        int drift = 1;
+        int match = correct ? 1 : 0;
+
+        int removed = window.push(match == 1);
+        if (removed < 0){
+            addFilling(window.size() - 1, match);
+        } else {
+            slide(removed, match, window.ones());
+        }
+
+        //Only tests once the window is full
+        if (window.isFull()){
+            weightedMean = weightedSum() / weightTotal;
+
+            if (weightedMean > maxMean){
+                maxMean = weightedMean;
+            } else if (maxMean - weightedMean > alarmThreshold){
+                drift = 0;
+                resetMDDM();
+            }
+        }
+
+        return drift;
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * This class implements the MDDM-A drift detector (arithmetic weighting) as described in "McDiarmid Drift Detection
+ * Methods for Evolving Data Streams" (Pesaranghader et. al, 2018)
+ * The result at position i of the window (0 is the oldest) has weight 1 + i * difference
+ */
+
+package detectors;
+
+import core.PredictionMatrix;
+
+public class MDDMA extends MDDM {
+    private double difference;          //Difference between the weights of consecutive results
+
+    //The weighted sum is ones + difference * positionSum which lets both parts be kept exactly as integers
+    private long ones;                  //Number of correct results in the window
+    private long positionSum;           //Sum of the positions of the correct results
+
+    //Constructor for pushing results with update, without a prediction matrix
+    public MDDMA(){
+        this((PredictionMatrix) null);
+    }
+
+    public MDDMA(PredictionMatrix predictionMatrix){
+        this(predictionMatrix, 100, 0.01, 0.000001);        //Values used in Pesaranghader 2018
+    }
+
+    public MDDMA(PredictionMatrix predictionMatrix, int windowSize, double difference, double delta){
+        super(predictionMatrix, windowSize, delta);
+        if (difference < 0){
+            throw new IllegalArgumentException("MDDM-A: difference must be >= 0");
+        }
+        this.difference = difference;
+        initBound();
+    }
+
+    protected double weight(int position){
+        return 1 + position * difference;
+    }
+
+    protected void addFilling(int position, int match){
+        ones += match;
+        positionSum += (long) position * match;
+    }
+
+    protected void slide(int removed, int added, int ones){
+        //Every remaining result moves down one position, the oldest (at position 0) adds nothing to positionSum
+        positionSum -= ones - added;
+        positionSum += (long) (windowSize - 1) * added;
+        this.ones = ones;
+    }
+
+    protected double weightedSum(){
+        return ones + difference * positionSum;
+    }
+
+    protected void resetSums(){
+        ones = 0;
+        positionSum = 0;
+    }
+}
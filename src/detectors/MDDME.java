@@ -0,0 +1,33 @@
+/**
+ * This class implements the MDDM-E drift detector (Euler weighting) as described in "McDiarmid Drift Detection
+ * Methods for Evolving Data Streams" (Pesaranghader et. al, 2018)
+ * The result at position i of the window (0 is the oldest) has weight e^(lambda * i), i.e. geometric weighting with
+ * a ratio of e^lambda
+ */
+
+package detectors;
+
+import core.PredictionMatrix;
+
+public class MDDME extends MDDMG {
+
+    //Constructor for pushing results with update, without a prediction matrix
+    public MDDME(){
+        this((PredictionMatrix) null);
+    }
+
+    public MDDME(PredictionMatrix predictionMatrix){
+        this(predictionMatrix, 100, 0.01, 0.000001);        //Values used in Pesaranghader 2018
+    }
+
+    public MDDME(PredictionMatrix predictionMatrix, int windowSize, double lambda, double delta){
+        super(predictionMatrix, windowSize, checkLambda(lambda), delta);
+    }
+
+    private static double checkLambda(double lambda){
+        if (lambda < 0){
+            throw new IllegalArgumentException("MDDM-E: lambda must be >= 0");
+        }
+        return Math.exp(lambda);
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * This class implements the MDDM-G drift detector (geometric weighting) as described in "McDiarmid Drift Detection
+ * Methods for Evolving Data Streams" (Pesaranghader et. al, 2018)
+ * The result at position i of the window (0 is the oldest) has weight ratio^i, these are scaled so the newest result
+ * has a weight of 1 which keeps large windows from overflowing
+ */
+
+package detectors;
+
+import core.PredictionMatrix;
+
+public class MDDMG extends MDDM {
+    private double ratio;               //Ratio between the weights of consecutive results
+    private double oldestWeight;        //Scaled weight of the oldest result, ratio^-(windowSize - 1)
+    private double sum;                 //Scaled weighted sum of the correct results
+
+    //Constructor for pushing results with update, without a prediction matrix
+    public MDDMG(){
+        this((PredictionMatrix) null);
+    }
+
+    public MDDMG(PredictionMatrix predictionMatrix){
+        this(predictionMatrix, 100, 1.01, 0.000001);        //Values used in Pesaranghader 2018
+    }
+
+    public MDDMG(PredictionMatrix predictionMatrix, int windowSize, double ratio, double delta){
+        super(predictionMatrix, windowSize, delta);
+        if (ratio < 1){
+            throw new IllegalArgumentException("MDDM-G: ratio must be >= 1");
+        }
+        this.ratio = ratio;
+        this.oldestWeight = Math.pow(ratio, -(windowSize - 1));
+        initBound();
+    }
+
+    protected double weight(int position){
+        return Math.pow(ratio, position - (windowSize - 1));
+    }
+
+    protected void addFilling(int position, int match){
+        if (match == 1){
+            sum += weight(position);
+        }
+    }
+
+    protected void slide(int removed, int added, int ones){
+        //Every remaining result moves down one position so its weight is divided by ratio
+        sum = (sum - oldestWeight * removed) / ratio + added;
+    }
+
+    protected double weightedSum(){
+        return sum;
+    }
+
+    protected void resetSums(){
+        sum = 0;
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * This class implements the Page-Hinkley test ("Continuous Inspection Schemes", Page, 1954) on the error rate
+ * The cumulative deviation of the errors from their running mean is compared to its minimum, drift is signalled when
+ * it rises more than lambda (the alarm threshold) above it
+ */
+
+package detectors;
+
+import core.PredictionMatrix;
+
+public class PageHinkley extends ErrorRateDetector {
+    private double delta;               //Magnitude of change that is tolerated
+    private double alpha;               //Fading factor of the cumulative deviation
+    private int minInstances;           //Results needed before testing
+    private long n;                     //Number of results
+    private double mean;                //Running mean of the errors
+    private double sum;                 //Cumulative deviation from the mean
+    private double minSum;              //Minimum cumulative deviation
+
+    //Constructor for pushing results with update, without a prediction matrix
+    public PageHinkley(){
+        this((PredictionMatrix) null);
+    }
+
+    public PageHinkley(PredictionMatrix predictionMatrix){
+        this(predictionMatrix, 50, 0.005, 1 - 0.0001, 30);       //Defaults used by MOA
+    }
+
+    public PageHinkley(PredictionMatrix predictionMatrix, double lambda, double delta, double alpha,
+                       int minInstances){
+        super(predictionMatrix, lambda);
+        if (alpha <= 0 || alpha > 1){
+            throw new IllegalArgumentException("Page-Hinkley: alpha must be between 0 and 1");
+        }
+        this.delta = delta;
+        this.alpha = alpha;
+        this.minInstances = minInstances;
+        resetPageHinkley();
+    }
+
+    //Resets class variables
+    private void resetPageHinkley(){
+        n = 0;
+        mean = 0;
+        sum = 0;
+        minSum = 0;
+    }
+
+    public int update(boolean correct){
+        //Per parent method:
+        //0 indicates drift
+        //1 indicates stable
+        //2 indicates warn
+        int drift = 1;
+        double error = correct ? 0 : 1;
+
+        n++;
+        mean += (error - mean) / n;
+        sum = alpha * sum + (error - mean - delta);
+        if (sum < minSum){
+            minSum = sum;
+        }
+
+        if (n >= minInstances && sum - minSum > alarmThreshold){
+            drift = 0;
+            resetPageHinkley();
+        }
+
+        return drift;
+    }
+}
@@ -0,0 +1,325 @@
+/**
+ * Feeds one stream of test results to several drift detectors, each running on its own worker thread, and combines
+ * their verdicts by voting
+ * Results are packed into a long and written to a single-producer ring that every worker reads with its own cursor,
+ * so publishing a result costs the same however many detectors there are. The detectors are only ever touched by
+ * their worker, so they must support update(actual, predicted) (PerfSim2 only does with a matrix of its own) and
+ * shouldn't be used elsewhere
+ * Drift is voted on by position in the stream rather than by call: the workers queue where they signalled drift, and
+ * there is a drift once the detectors that signalled within voteWindow results of each other carry enough weight, so
+ * the verdict doesn't depend on how often testDrift is called. A drift verdict uses up the signals it was made from.
+ * A warn signal keeps its vote for voteWindow results
+ */
+
+package detectors;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+public class ParallelDetectorRunner implements AutoCloseable {
+    private static final int DEFAULT_CAPACITY = 4096;      //Results that can be queued before publish waits
+    private static final int SPINS = 100;                  //Empty polls before an idle worker starts parking
+    private static final int DEFAULT_VOTE_WINDOW = 500;    //Results between signals that still vote together
+
+    //How the verdicts are combined
+    public enum Voting {
+        ANY,                    //Drift if any detector signals drift
+        MAJORITY,               //Drift if more than half of the detectors signal drift
+        WEIGHTED                //Drift if the weights of the detectors signalling drift add up to more than a threshold
+    }
+
+    private Voting voting;
+    private double[] weights;           //Weight of each detector's vote
+    private double threshold;           //Total weight needed for a verdict
+    private int voteWindow;             //Results between signals that still vote together
+
+    private long[] ring;                //Published results, actual class in the high and predicted in the low 32 bits
+    private int mask;                   //ring.length - 1 (length is always a power of 2)
+    private volatile long published;    //Number of results published (only written by the producer)
+    private long slowest;               //Slowest cursor the producer last saw, cursors only move forward
+
+    private Worker[] workers;
+    private long sweptTo;               //Last drift signal position testDrift has voted on
+    private double driftVotes;          //Weight that voted for drift in the last testDrift
+    private volatile boolean running = true;
+
+    //Runs a detector, only its own thread writes to the cursor and adds signals (testDrift removes them)
+    private final class Worker extends Thread {
+        final AbstractChangeDetectorNew detector;
+        volatile long cursor;           //Number of results processed
+        //Number of results processed at each drift signal that hasn't been used up or expired, in order
+        final ConcurrentLinkedQueue<Long> drifts = new ConcurrentLinkedQueue<Long>();
+        volatile long lastWarn;         //Number of results processed when warn was last signalled, 0 if never
+        volatile Throwable failure;     //Exception thrown by the detector, which stops the worker
+
+        Worker(AbstractChangeDetectorNew detector, int id){
+            super("detector-" + id);
+            this.detector = detector;
+            setDaemon(true);
+        }
+
+        public void run(){
+            long position = 0;
+            int idle = 0;
+            try {
+                while (running){
+                    long available = published;
+                    if (position == available){
+                        if (++idle > SPINS){
+                            LockSupport.parkNanos(10000);
+                        }
+                        continue;
+                    }
+                    idle = 0;
+
+                    //Processes everything available before publishing the cursor
+                    for (; position < available; position++){
+                        long outcome = ring[(int) position & mask];
+                        int drift = detector.update((int) (outcome >>> 32), (int) outcome);
+                        if (drift == 0){
+                            drifts.add(position + 1);
+                        } else if (drift == 2){
+                            lastWarn = position + 1;
+                        }
+                    }
+                    cursor = position;
+                }
+            } catch (Throwable t){
+                failure = t;
+            }
+        }
+    }
+
+    //Equally weighted detectors combined with ANY or MAJORITY voting
+    public ParallelDetectorRunner(AbstractChangeDetectorNew[] detectors, Voting voting){
+        this(detectors, voting, DEFAULT_VOTE_WINDOW);
+    }
+
+    //Equally weighted detectors combined with ANY or MAJORITY voting, signals keep their vote for voteWindow results
+    public ParallelDetectorRunner(AbstractChangeDetectorNew[] detectors, Voting voting, int voteWindow){
+        this(detectors, voting, equalWeights(detectors.length), countThreshold(voting, detectors.length),
+                voteWindow, DEFAULT_CAPACITY);
+    }
+
+    //Weighted voting, a verdict needs the weights of the detectors giving it to add up to more than threshold
+    public ParallelDetectorRunner(AbstractChangeDetectorNew[] detectors, double[] weights, double threshold){
+        this(detectors, Voting.WEIGHTED, weights, threshold, DEFAULT_VOTE_WINDOW, DEFAULT_CAPACITY);
+    }
+
+    public ParallelDetectorRunner(AbstractChangeDetectorNew[] detectors, Voting voting, double[] weights,
+                                  double threshold, int voteWindow, int capacity){
+        if (detectors.length == 0){
+            throw new IllegalArgumentException("At least one detector is needed");
+        }
+        if (weights.length != detectors.length){
+            throw new IllegalArgumentException("Every detector needs a weight");
+        }
+        if (voteWindow < 1){
+            throw new IllegalArgumentException("Vote window must be > 0");
+        }
+        if (capacity < 1 || Integer.bitCount(capacity) != 1){
+            throw new IllegalArgumentException("Capacity must be a power of 2");
+        }
+        for (int i = 0; i < detectors.length; i++){
+            //A PerfSim2 on a shared matrix would record into it from its worker, racing the matrix's owner
+            if (detectors[i] instanceof PerfSim2 && !((PerfSim2) detectors[i]).ownsMatrix()){
+                throw new IllegalArgumentException("PerfSim2 needs a matrix of its own to be pushed results");
+            }
+        }
+        this.voting = voting;
+        this.weights = weights.clone();
+        this.threshold = threshold;
+        this.voteWindow = voteWindow;
+
+        ring = new long[capacity];
+        mask = capacity - 1;
+
+        workers = new Worker[detectors.length];
+        for (int i = 0; i < detectors.length; i++){
+            workers[i] = new Worker(detectors[i], i);
+        }
+        for (int i = 0; i < workers.length; i++){
+            workers[i].start();
+        }
+    }
+
+    //Votes needed by ANY and MAJORITY
+    private static double countThreshold(Voting voting, int n){
+        if (voting == Voting.WEIGHTED){
+            throw new IllegalArgumentException("Weighted voting needs weights and a threshold");
+        }
+        return voting == Voting.ANY ? 0 : n / 2.0;
+    }
+
+    private static double[] equalWeights(int n){
+        double[] weights = new double[n];
+        for (int i = 0; i < n; i++){
+            weights[i] = 1;
+        }
+        return weights;
+    }
+
+    /*These methods are called by the producer (the prequential loop)----------------------*/
+    //Publishes a test result to every detector, only waits if the slowest detector is a whole ring behind
+    public void publish(int actualClass, int predictedClass){
+        long position = published;
+        //Only looks at the cursors again when the last slowest one would be overwritten
+        while (position - slowest >= ring.length){
+            slowest = slowestCursor();
+            if (position - slowest >= ring.length){
+                checkWorkers();
+                Thread.yield();
+            }
+        }
+        ring[(int) position & mask] = ((long) actualClass << 32) | (predictedClass & 0xFFFFFFFFL);
+        published = position + 1;
+    }
+
+    //Combines the drift signals not yet voted on, and the warn signals of the last voteWindow published results
+    //Per AbstractChangeDetectorNew returns 0 for drift, 1 for stable, 2 for warn. Detectors may still be processing
+    //recent results, call flush first to include everything published so far
+    public int testDrift(){
+        checkWorkers();
+        //Goes through the drift signals in stream order, each one closing a window of voteWindow results. Only up to
+        //the slowest detector, as the others may still signal before that
+        long settled = slowestCursor();
+        long end;
+        while ((end = nextSignal(settled)) != Long.MAX_VALUE){
+            double drift = votesBetween(end - voteWindow, end);
+            if (drift > threshold){
+                //Uses up the signals so they don't give another drift
+                for (int i = 0; i < workers.length; i++){
+                    discardUpTo(workers[i].drifts, end);
+                }
+                sweptTo = end;
+                driftVotes = drift;
+                return 0;
+            }
+            sweptTo = end;
+        }
+        //Signals that can't share a window with any later one have lost their vote
+        long expired = settled - voteWindow;
+        for (int i = 0; i < workers.length; i++){
+            discardUpTo(workers[i].drifts, expired);
+        }
+
+        long oldest = published - voteWindow;
+        double drift = votesBetween(oldest, published);
+        double warn = 0;
+        for (int i = 0; i < workers.length; i++){
+            if (!hasSignal(workers[i].drifts, oldest, published) && workers[i].lastWarn > oldest){
+                warn += weights[i];
+            }
+        }
+        driftVotes = drift;
+
+        if (drift + warn > threshold){                  //Detectors signalling drift also count towards a warn
+            return 2;
+        }
+        return 1;
+    }
+
+    //Position of the first queued drift signal after the last window end looked at and up to limit, Long.MAX_VALUE if
+    //there is none
+    private long nextSignal(long limit){
+        long next = Long.MAX_VALUE;
+        for (int i = 0; i < workers.length; i++){
+            for (Long position : workers[i].drifts){
+                if (position > sweptTo){
+                    if (position <= limit){
+                        next = Math.min(next, position);
+                    }
+                    break;
+                }
+            }
+        }
+        return next;
+    }
+
+    //Weight of the detectors with a queued drift signal in (from, to]
+    private double votesBetween(long from, long to){
+        double votes = 0;
+        for (int i = 0; i < workers.length; i++){
+            if (hasSignal(workers[i].drifts, from, to)){
+                votes += weights[i];
+            }
+        }
+        return votes;
+    }
+
+    private static boolean hasSignal(ConcurrentLinkedQueue<Long> drifts, long from, long to){
+        for (Long position : drifts){
+            if (position > to){
+                return false;
+            } else if (position > from){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void discardUpTo(ConcurrentLinkedQueue<Long> drifts, long position){
+        Iterator<Long> it = drifts.iterator();
+        while (it.hasNext() && it.next() <= position){
+            it.remove();
+        }
+    }
+
+    //Waits until every detector has processed every published result
+    public void flush(){
+        long target = published;
+        while (slowestCursor() < target){
+            checkWorkers();
+            Thread.yield();
+        }
+    }
+
+    //Stops the workers, results that haven't been processed yet are dropped
+    public void close(){
+        running = false;
+        for (int i = 0; i < workers.length; i++){
+            try {
+                workers[i].join();
+            } catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private long slowestCursor(){
+        long slowest = Long.MAX_VALUE;
+        for (int i = 0; i < workers.length; i++){
+            slowest = Math.min(slowest, workers[i].cursor);
+        }
+        return slowest;
+    }
+
+    //Passes on any exception thrown by a detector
+    private void checkWorkers(){
+        for (int i = 0; i < workers.length; i++){
+            Throwable failure = workers[i].failure;
+            if (failure != null){
+                throw new IllegalStateException("Detector " + i + " failed", failure);
+            }
+        }
+    }
+
+    //Weight that voted for drift in the last testDrift
+    public double getDriftVotes(){
+        return driftVotes;
+    }
+
+    public Voting getVoting(){
+        return voting;
+    }
+
+    public int getVoteWindow(){
+        return voteWindow;
+    }
+
+    public int getNumDetectors(){
+        return workers.length;
+    }
+}
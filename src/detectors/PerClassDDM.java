@@ -0,0 +1,176 @@
+/**
+ * Bank of DDM detectors with one detector per class on each axis of the confusion matrix: the row detector of a class
+ * tracks the error rate of its instances (1 - recall) and the column detector the error rate of the predictions of it
+ * (1 - precision). A drift that only affects a minority class shows up in its own detectors rather than being diluted
+ * in the global error rate
+ * State is kept as parallel arrays indexed by axis * numClasses + class, and every prediction only touches the row of
+ * its actual class and the column of its predicted class, so an update is O(1) and memory is linear in the classes
+ */
+
+package detectors;
+
+import core.PredictionMatrix;
+
+import java.util.Arrays;
+
+public class PerClassDDM extends AbstractChangeDetectorNew {
+    public static final int RECALL = 0;         //Axis of the row (actual class) detectors
+    public static final int PRECISION = 1;      //Axis of the column (predicted class) detectors
+
+    private int numClasses;             //Number of different classes
+    private int minInstances;           //Results a detector needs before testing
+
+    //DDM state of every detector, see DDM
+    private long[] n;                   //Number of results
+    private double[] p;                 //Error rate
+    private double[] s;                 //Std of the error rate
+    private double[] pMin;              //Error rate where p + s was lowest
+    private double[] sMin;              //Std where p + s was lowest
+
+    private int driftClass = -1;        //Class that triggered the last drift or warn, -1 if the last update was stable
+    private int driftAxis = -1;         //Axis (RECALL or PRECISION) of the above
+
+    public PerClassDDM(PredictionMatrix predictionMatrix){
+        this(predictionMatrix, 3, 2, 30);
+    }
+
+    public PerClassDDM(PredictionMatrix predictionMatrix, double alarmThreshold, double warnThreshold,
+                       int minInstances){
+        this(predictionMatrix, predictionMatrix.getNumClasses(), alarmThreshold, warnThreshold, minInstances);
+    }
+
+    //Constructor for pushing results with update, without a prediction matrix
+    public PerClassDDM(int numClasses){
+        this(numClasses, 3, 2, 30);
+    }
+
+    public PerClassDDM(int numClasses, double alarmThreshold, double warnThreshold, int minInstances){
+        this(null, numClasses, alarmThreshold, warnThreshold, minInstances);
+    }
+
+    private PerClassDDM(PredictionMatrix predictionMatrix, int numClasses, double alarmThreshold,
+                        double warnThreshold, int minInstances){
+        super(predictionMatrix, alarmThreshold, warnThreshold);
+        if (numClasses < 1){
+            throw new IllegalArgumentException("Number of classes must be > 0");
+        }
+        if (warnThreshold > alarmThreshold){
+            throw new IllegalArgumentException("DDM: warn threshold must be <= alarm threshold");
+        }
+        this.numClasses = numClasses;
+        this.minInstances = minInstances;
+
+        n = new long[2 * numClasses];
+        p = new double[2 * numClasses];
+        s = new double[2 * numClasses];
+        pMin = new double[2 * numClasses];
+        sMin = new double[2 * numClasses];
+        reset();
+    }
+
+    //Resets every detector
+    public void reset(){
+        Arrays.fill(n, 0);
+        Arrays.fill(p, 0);
+        Arrays.fill(s, 0);
+        Arrays.fill(pMin, Double.MAX_VALUE);
+        Arrays.fill(sMin, Double.MAX_VALUE);
+        driftClass = -1;
+        driftAxis = -1;
+    }
+
+    //Resets the detector of a single class, e.g. once the drift it found has been dealt with
+    public void resetClass(int classInd, int axis){
+        int i = indexOf(classInd, axis);
+        n[i] = 0;
+        p[i] = 0;
+        s[i] = 0;
+        pMin[i] = Double.MAX_VALUE;
+        sMin[i] = Double.MAX_VALUE;
+    }
+
+    private int indexOf(int classInd, int axis){
+        if (classInd < 0 || classInd >= numClasses || (axis != RECALL && axis != PRECISION)){
+            throw new IllegalArgumentException("Class index or axis is out of range");
+        }
+        return axis * numClasses + classInd;
+    }
+
+    //Updates a single detector, returns the same as testDrift
+    private int updateDetector(int i, double error){
+        n[i]++;
+        p[i] += (error - p[i]) / n[i];
+        s[i] = Math.sqrt(p[i] * (1 - p[i]) / n[i]);
+
+        //A detector that has seen no errors yet has s = 0, and arming the test then would make the first error look
+        //like a drift, which is the usual case for rare classes, so it waits for a non-zero std
+        if (n[i] < minInstances || s[i] == 0){
+            return 1;
+        }
+
+        if (p[i] + s[i] <= pMin[i] + sMin[i]){
+            pMin[i] = p[i];
+            sMin[i] = s[i];
+        }
+
+        if (p[i] + s[i] > pMin[i] + alarmThreshold * sMin[i]){
+            //Only the detector that found the drift starts again
+            n[i] = 0;
+            p[i] = 0;
+            s[i] = 0;
+            pMin[i] = Double.MAX_VALUE;
+            sMin[i] = Double.MAX_VALUE;
+            return 0;
+        } else if (p[i] + s[i] > pMin[i] + warnThreshold * sMin[i]){
+            return 2;
+        }
+        return 1;
+    }
+
+    //Updates the recall detector of the actual class and the precision detector of the predicted class
+    //Drift takes priority over warn, and the recall detector over the precision one when both signal the same
+    public int update(int actualClass, int predictedClass){
+        if (actualClass < 0 || actualClass >= numClasses || predictedClass < 0 || predictedClass >= numClasses){
+            throw new IllegalArgumentException("Class index is out of range");
+        }
+        //Per parent method:
+        //0 indicates drift
+        //1 indicates stable
+        //2 indicates warn
+        double error = actualClass != predictedClass ? 1 : 0;
+        int rowDrift = updateDetector(actualClass, error);
+        int colDrift = updateDetector(numClasses + predictedClass, error);
+
+        if (rowDrift == 0 || (rowDrift == 2 && colDrift != 0)){
+            driftClass = actualClass;
+            driftAxis = RECALL;
+            return rowDrift;
+        } else if (colDrift != 1){
+            driftClass = predictedClass;
+            driftAxis = PRECISION;
+            return colDrift;
+        }
+        driftClass = -1;
+        driftAxis = -1;
+        return 1;
+    }
+
+    //Class that triggered the last drift or warn, -1 if the last update was stable
+    public int getDriftClass(){
+        return driftClass;
+    }
+
+    //RECALL if the last drift or warn came from the actual class's detector, PRECISION if from the predicted class's
+    public int getDriftAxis(){
+        return driftAxis;
+    }
+
+    //Current error rate seen by the detector of a class
+    public double getErrorRate(int classInd, int axis){
+        return p[indexOf(classInd, axis)];
+    }
+
+    public int getNumClasses(){
+        return numClasses;
+    }
+}
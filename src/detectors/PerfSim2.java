@@ -2,15 +2,36 @@
  * Created by Peter on 10/30/2017.
  * This class implements the PerfSim drift detector as described in "The PerfSim Algorithm for Concept Drift Detection
  * in Imbalanced Data" (Antwi et. al, 2012)
+ * The dot product and squared norms of the cosine similarity are kept up to date as individual cells of the confusion
+ * matrix change (the detector listens to the prediction matrix), so a similarity test is O(1). Only moving the
+ * compare-to matrix along costs a pass over the cells
+ * A detector built with the number of classes keeps a sliding window of its own, and results can then be pushed with
+ * update, which records them and tests every testInterval results
  */
 
 package detectors;
 
+import core.PredictionListener;
 import core.PredictionMatrix;
+import core.SparseConfusionMatrix;
 
-public class PerfSim2 extends AbstractChangeDetectorNew{
+public class PerfSim2 extends AbstractChangeDetectorNew implements PredictionListener{
+    private static final int DEFAULT_TEST_INTERVAL = 300;  //Results between pushed tests, as in the experiments
+
+    private int numClasses;                     //Number of different classes
     private int[] previousVector;               //Stores the vector to compare to
-    private int size;                           //Size of the above
+    private SparseConfusionMatrix previousSparse;   //Stores the matrix to compare to when it is stored sparsely
+
+    private long dotProduct;                    //Dot product of the current and compare-to matrices
+    private long currentNorm;                   //Squared norm of the current matrix
+    private long previousNorm;                  //Squared norm of the compare-to matrix
+    private double similarity;                  //Similarity found by the last test
+
+    private int referenceInterval;              //Predictions between compare-to updates, 0 to update on every test
+    private int sinceReference;                 //Predictions since the compare-to matrix was updated
+    private int testInterval = DEFAULT_TEST_INTERVAL;   //Pushed results between tests
+    private int sinceTest;                      //Pushed results since the last test
+    private boolean ownsMatrix;                 //Whether the detector made its matrix, only then can it be pushed to
 
     //Constructor
     public PerfSim2(PredictionMatrix predictionMatrix){
@@ -19,47 +40,108 @@ public class PerfSim2 extends AbstractChangeDetectorNew{
 
     //Constructor
     public PerfSim2(PredictionMatrix predictionMatrix, double alarmThreshold){
-        super(predictionMatrix, alarmThreshold);
-        int[][] confusionMatrix = predictionMatrix.getMatrix();
+        this(predictionMatrix, alarmThreshold, 0);
+    }
 
-        int n = confusionMatrix.length;
-        this.size = n * n;
-        this.previousVector = reshape(confusionMatrix);
+    //Constructor for pushing results with update, the detector keeps its own sliding window of windowLength results
+    //and compares it to the window from the previous test every testInterval results
+    public PerfSim2(int numClasses, int windowLength, double alarmThreshold, int testInterval){
+        this(new PredictionMatrix(numClasses, windowLength), alarmThreshold, 0);
+        setTestInterval(testInterval);
+        this.ownsMatrix = true;
     }
 
-    //Reshapes a square matrix into a vector
-    private int[] reshape (int[][] matrix){
-        int[] vector = new int[size];
+    //Constructor where the compare-to matrix only moves every referenceInterval predictions rather than on every
+    //test, so testDrift is O(1) and can be called after every prediction
+    public PerfSim2(PredictionMatrix predictionMatrix, double alarmThreshold, int referenceInterval){
+        super(predictionMatrix, alarmThreshold);
+        if (referenceInterval < 0){
+            throw new IllegalArgumentException("Reference interval must be >= 0");
+        }
+
+        this.numClasses = predictionMatrix.getNumClasses();
+        this.referenceInterval = referenceInterval;
+        //Norm of the current matrix (only visiting the non-zero cells of a sparse one), after which the compare-to
+        //matrix is set to it
+        if (predictionMatrix.isSparse()){
+            SparseConfusionMatrix cells = predictionMatrix.getSparseMatrix();
+            this.previousSparse = new SparseConfusionMatrix(numClasses, cells.size());
+            for (int slot = 0; slot < cells.getCapacity(); slot++){
+                if (cells.isUsed(slot)){
+                    long count = cells.getValue(slot);
+                    currentNorm += count * count;
+                }
+            }
+        } else {
+            this.previousVector = new int[numClasses * numClasses];
+            int[][] matrix = predictionMatrix.getMatrix();
+            for (int i = 0; i < numClasses; i++){
+                for (int j = 0; j < numClasses; j++){
+                    long count = matrix[i][j];
+                    currentNorm += count * count;
+                }
+            }
+        }
+        updateReference();
+        predictionMatrix.addListener(this);
+    }
 
-        int count = 0;
-        for (int i = 0; i < matrix.length; i++){
-            for (int j = 0; j < matrix.length; j++){
-                vector[count] = matrix[i][j];
-                count++;
+    //Sets the compare-to matrix to the current matrix
+    private void updateReference(){
+        if (previousVector != null){
+            int[][] matrix = predictionMatrix.getMatrix();
+            for (int i = 0; i < numClasses; i++){
+                System.arraycopy(matrix[i], 0, previousVector, i * numClasses, numClasses);
             }
+        } else {
+            previousSparse.copyFrom(predictionMatrix.getSparseMatrix());
         }
+        previousNorm = currentNorm;
+        dotProduct = currentNorm;
+        sinceReference = 0;
+    }
 
-        return vector;
+    //Count of a cell in the compare-to matrix
+    private long previousCount(int actualClass, int predictedClass){
+        return previousVector != null ? previousVector[actualClass * numClasses + predictedClass] :
+                previousSparse.get(actualClass, predictedClass);
     }
 
-    //Calculates the cosine similarity between two vectors
-    private double calcCosSim (int[] a, int[] b){
-        if (a.length != b.length){
-            throw new IllegalArgumentException("Vector lengths do not match");
+    /*These methods are called by the prediction matrix, the cell has already been changed----------------------*/
+    public void predictionAdded(int actualClass, int predictedClass){
+        long count = predictionMatrix.getCount(actualClass, predictedClass);
+        dotProduct += previousCount(actualClass, predictedClass);
+        currentNorm += 2 * count - 1;                       //count^2 - (count - 1)^2
+
+        if (referenceInterval > 0 && ++sinceReference >= referenceInterval){
+            updateReference();
         }
+    }
 
-        double nume = 0;
-        double lenA = 0;
-        double lenB = 0;
+    public void predictionsAdded(int actualClass, int predictedClass, int count){
+        long newCount = predictionMatrix.getCount(actualClass, predictedClass);
+        dotProduct += count * previousCount(actualClass, predictedClass);
+        currentNorm += count * (2 * newCount - count);      //newCount^2 - (newCount - count)^2
 
-        for (int i = 0; i < a.length; i++){
-            nume += a[i] * b[i];
-            lenA += a[i] * a[i];
-            lenB += b[i] * b[i];
+        if (referenceInterval > 0 && (sinceReference += count) >= referenceInterval){
+            updateReference();
         }
+    }
+
+    public void predictionRemoved(int actualClass, int predictedClass){
+        long count = predictionMatrix.getCount(actualClass, predictedClass);
+        dotProduct -= previousCount(actualClass, predictedClass);
+        currentNorm -= 2 * count + 1;                       //(count + 1)^2 - count^2
+    }
+
+    public void matrixReset(){
+        dotProduct = 0;
+        currentNorm = 0;
+    }
 
-        System.out.println(nume/(Math.sqrt(lenA) * Math.sqrt(lenB)));
-        return nume/(Math.sqrt(lenA) * Math.sqrt(lenB));
+    //Cosine similarity between the current and compare-to matrices
+    private double calcCosSim (){
+        return dotProduct/(Math.sqrt((double) currentNorm) * Math.sqrt((double) previousNorm));
     }
 
     //Resets the alarm threshold to a different value
@@ -70,22 +152,72 @@ public class PerfSim2 extends AbstractChangeDetectorNew{
         this.alarmThreshold = alarmThreshold;
     }
 
+    //Sets how many pushed results there are between tests
+    public void setTestInterval (int testInterval){
+        if (testInterval < 1){
+            throw new IllegalArgumentException("Test interval must be > 0");
+        }
+        this.testInterval = testInterval;
+    }
+
+    //Similarity found by the last test
+    public double getSimilarity (){
+        return similarity;
+    }
+
+    //Predictions between compare-to updates, 0 if the compare-to matrix moves on every test
+    public int getReferenceInterval (){
+        return referenceInterval;
+    }
+
+    //Whether the detector has a matrix of its own, so results can be pushed with update
+    public boolean ownsMatrix (){
+        return ownsMatrix;
+    }
+
+    //Stops listening to the prediction matrix, the detector can't be used afterwards
+    public void detach (){
+        predictionMatrix.removeListener(this);
+    }
+
+    //Moving the compare-to matrix on a test means a pass over the cells
+    public double getTestCost (){
+        return referenceInterval > 0 ? 1 : numClasses * numClasses;
+    }
+
+    //Compares whole matrices so tests can be skipped
+    public boolean needsEveryTest (){
+        return false;
+    }
+
     //Tests if concept drift has occured from new confusion matrix
     public int testDrift (){
-        return testDrift(true);               //By default updates the compare-to vector when testing
+        return testDrift(referenceInterval == 0);   //By default updates the compare-to vector when testing
     }
 
-    public int testDrift (boolean update){
-        int[] newVector = reshape(predictionMatrix.getMatrix());
+    //Records a result in the prediction matrix and, every testInterval results, tests the matrix against the one
+    //from the previous test. Only available when the detector has a matrix of its own, a shared one is already fed by
+    //its owner and would count every result twice
+    public int update (int actualClass, int predictedClass){
+        if (!ownsMatrix){
+            throw new IllegalStateException("Only a PerfSim2 with its own matrix can be pushed results");
+        }
 
-        if (newVector.length != size){
-            throw new IllegalArgumentException("New confusion matrix does not match the previous in size");
+        predictionMatrix.record(actualClass, predictedClass);
+        if (++sinceTest < testInterval){
+            return 1;
         }
+        sinceTest = 0;
+        return testDrift(true);
+    }
 
-        double similarity = calcCosSim(newVector, previousVector);
+    public int testDrift (boolean update){
+        similarity = calcCosSim();
 
-        if (update) {
-            previousVector = newVector;
+        //Like the other detectors it starts again after a drift, otherwise it would keep signalling the same drift
+        //until the compare-to matrix next moves
+        if (update || similarity < alarmThreshold) {
+            updateReference();
         }
 
         //Per parent method: